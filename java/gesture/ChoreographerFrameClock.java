@@ -0,0 +1,20 @@
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+/**
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public class ChoreographerFrameClock implements FrameClock {
+    @Override
+    public void postFrameCallback(@NonNull Choreographer.FrameCallback frameCallback) {
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+
+    @Override
+    public void removeFrameCallback(@NonNull Choreographer.FrameCallback frameCallback) {
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
+    }
+}
@@ -1,4 +1,5 @@
 import android.annotation.IntDef;
+import android.graphics.RectF;
 import android.util.Log;
 import android.view.View;
 import java.lang.annotation.Retention;
@@ -41,8 +42,16 @@ public enum DragDirection {
         return 0f;
     }
 
+    public float getOpenPosition(int size) {
+        return 0f;
+    }
+
     public float getRetractedPosition(View view) {
-        return (float) ((-getSizeAlongDragAxis(view)) * sigNum);
+        return getRetractedPosition(getSizeAlongDragAxis(view));
+    }
+
+    public float getRetractedPosition(int size) {
+        return (float) ((-size) * sigNum);
     }
 
     public void setAbsolutePosition(View view, float position) {
@@ -59,6 +68,13 @@ public enum DragDirection {
             view.setTranslationX((float) (translation * sigNum));
     }
 
+    public void setTranslationAlongDragAxis(View view, float translation) {
+        if (dragType == Orientation.VERTICAL)
+            view.setTranslationY(translation);
+        else
+            view.setTranslationX(translation);
+    }
+
     public void placeChildInParent(View view, PositionLayout positionLayout, float position) {
         if (dragType == Orientation.VERTICAL)
             positionLayout.placeChild(view, 0.0f, position);
@@ -67,28 +83,54 @@ public enum DragDirection {
     }
 
     public float getMinPosition(View view) {
+        return getMinPosition(getSizeAlongDragAxis(view));
+    }
+
+    public float getMinPosition(int size) {
         if (sigNum == 1)
-            return (float) (-getSizeAlongDragAxis(view));
+            return (float) (-size);
         return 0f;
     }
 
     public float getMaxPosition(View view) {
+        return getMaxPosition(getSizeAlongDragAxis(view));
+    }
+
+    public float getMaxPosition(int size) {
         if (sigNum == 1)
             return 0f;
-        return (float) getSizeAlongDragAxis(view);
+        return (float) size;
     }
 
     public float getLeadingEdge(View view, float position) {
+        return getLeadingEdge(getSizeAlongDragAxis(view), position);
+    }
+
+    public float getLeadingEdge(int size, float position) {
         if (sigNum == 1)
-            return position + ((float) getSizeAlongDragAxis(view));
+            return position + ((float) size);
         return position;
     }
 
     public float getDragProgress(View view, float position) {
+        return getDragProgress(getSizeAlongDragAxis(view), position);
+    }
+
+    public float getDragProgress(int size, float position) {
         if (sigNum == 1) {
-            return getLeadingEdge(view, position) / ((float) getSizeAlongDragAxis(view));
+            return getLeadingEdge(size, position) / ((float) size);
         }
-        return 1f - (getLeadingEdge(view, position) / ((float) getSizeAlongDragAxis(view)));
+        return 1f - (getLeadingEdge(size, position) / ((float) size));
+    }
+
+    public float getPositionForProgress(View view, float progress) {
+        return getPositionForProgress(getSizeAlongDragAxis(view), progress);
+    }
+
+    public float getPositionForProgress(int size, float progress) {
+        if (sigNum == 1)
+            return (progress - 1f) * ((float) size);
+        return (1f - progress) * ((float) size);
     }
 
     public float getDistanceToFinger(float x, float y, int endX, float endY) {
@@ -103,6 +145,10 @@ public enum DragDirection {
         return position + (dragType == Orientation.VERTICAL ? y : x);
     }
 
+    public float getPositionAlongDragAxis(float x, float y) {
+        return dragType == Orientation.VERTICAL ? y : x;
+    }
+
     public float getDragVelocity(float x, float y) {
         return dragType == Orientation.VERTICAL ? y : x;
     }
@@ -115,6 +161,14 @@ public enum DragDirection {
         return Math.signum(dragType == Orientation.VERTICAL ? velocityY : velocityX) == sigNum;
     }
 
+    public boolean isAxisVelocityEnoughForFling(float velocity, float minimalFlingVelocity) {
+        return Math.abs(velocity) > minimalFlingVelocity;
+    }
+
+    public boolean isAxisVelocityInOpenDirection(float velocity) {
+        return Math.signum(velocity) == sigNum;
+    }
+
     public boolean isVelocityInCloseDirection(float x, float y) {
         return Math.signum((dragType == Orientation.VERTICAL ? y : x)) == ((float) (-sigNum));
     }
@@ -132,6 +186,26 @@ public enum DragDirection {
                 (dragType == Orientation.VERTICAL ? y : x) + ((float) offset) > leadingEdge;
     }
 
+    public void getDragStartRegion(float size, float leadingEdge, float maxPosition, RectF outRegion) {
+        if (sigNum == 1)
+            setAxisRange(outRegion, Float.NEGATIVE_INFINITY, Math.max(size, leadingEdge));
+        else
+            setAxisRange(outRegion, Math.min(maxPosition - size, leadingEdge), Float.POSITIVE_INFINITY);
+    }
+
+    public void getLeadingEdgeRegion(int offset, float leadingEdge, RectF outRegion) {
+        if (sigNum == 1)
+            setAxisRange(outRegion, Float.NEGATIVE_INFINITY, leadingEdge + ((float) offset));
+        else
+            setAxisRange(outRegion, leadingEdge - ((float) offset), Float.POSITIVE_INFINITY);
+    }
+
+    private void setAxisRange(RectF outRegion, float start, float end) {
+        if (dragType == Orientation.VERTICAL)
+            outRegion.set(Float.NEGATIVE_INFINITY, start, Float.POSITIVE_INFINITY, end);
+        else
+            outRegion.set(start, Float.NEGATIVE_INFINITY, end, Float.POSITIVE_INFINITY);
+    }
 
     @IntDef({Orientation.HORIZONTAL, Orientation.VERTICAL})
     @Retention(RetentionPolicy.SOURCE)
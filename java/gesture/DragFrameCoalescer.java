@@ -0,0 +1,187 @@
+import android.view.Choreographer;
+import android.view.MotionEvent;
+
+/**
+ * Accumulates drag progress between frames and delivers at most one
+ * {@link DragRecognizerClient#onDrag} per frame of the given {@link FrameClock}.
+ * With resampling enabled the delivered position is interpolated between the buffered touch
+ * samples at the frame time, extrapolating by a bounded amount past the newest sample.
+ *
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+class DragFrameCoalescer implements Choreographer.FrameCallback {
+    private static final int SAMPLE_COUNT = 8;
+    private static final long RESAMPLE_LATENCY_MILLIS = 5;
+    private static final long RESAMPLE_MIN_DELTA_MILLIS = 2;
+    private static final long RESAMPLE_MAX_PREDICTION_MILLIS = 8;
+    private final FrameClock frameClock;
+    private DragRecognizerClient client;
+    private float x;
+    private float y;
+    private long eventTimeMillis;
+    private VelocityProvider velocityProvider;
+    private boolean pending;
+    private boolean displaced;
+    private boolean posted;
+    private int coalescedEventCount;
+    private boolean resampling;
+    private final long[] sampleTimes = new long[SAMPLE_COUNT];
+    private final float[] sampleX = new float[SAMPLE_COUNT];
+    private final float[] sampleY = new float[SAMPLE_COUNT];
+    private int newestSample;
+    private int sampleCount;
+    private float deliveredX;
+    private float deliveredY;
+    private long deliveredTime;
+
+    DragFrameCoalescer(FrameClock frameClock) {
+        this.frameClock = frameClock;
+    }
+
+    void setResampling(boolean resampling) {
+        this.resampling = resampling;
+    }
+
+    void onDrag(DragRecognizerClient client, MotionEvent motionEvent, float x, float y, float dX, float dY, long eventTimeMillis, VelocityProvider velocityProvider) {
+        if (this.client != null && this.client != client)
+            endDrag();
+        if (pending)
+            coalescedEventCount++;
+        if (sampleCount == 0) {
+            deliveredX = x - dX;
+            deliveredY = y - dY;
+            deliveredTime = Long.MIN_VALUE;
+        } else if (motionEvent != null) {
+            int historySize = motionEvent.getHistorySize();
+            for (int h = 0; h < historySize; h++)
+                addSample(motionEvent.getHistoricalEventTime(h), motionEvent.getHistoricalX(h), motionEvent.getHistoricalY(h));
+        }
+        addSample(eventTimeMillis, x, y);
+        this.client = client;
+        this.x = x;
+        this.y = y;
+        this.eventTimeMillis = eventTimeMillis;
+        this.velocityProvider = velocityProvider;
+        this.pending = true;
+        postFrame();
+    }
+
+    void flush() {
+        if (pending || displaced)
+            deliver(x, y, eventTimeMillis);
+    }
+
+    void endDrag() {
+        flush();
+        client = null;
+        velocityProvider = null;
+        sampleCount = 0;
+    }
+
+    void cancel() {
+        pending = false;
+        displaced = false;
+        client = null;
+        velocityProvider = null;
+        sampleCount = 0;
+        if (posted) {
+            posted = false;
+            frameClock.removeFrameCallback(this);
+        }
+    }
+
+    int getCoalescedEventCount() {
+        return coalescedEventCount;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        posted = false;
+        if (client == null || !(pending || displaced))
+            return;
+        if (resampling && sampleCount > 1) {
+            if (resample(frameTimeNanos / 1000000L - RESAMPLE_LATENCY_MILLIS) && displaced)
+                postFrame();
+        } else {
+            flush();
+        }
+    }
+
+    private void postFrame() {
+        if (!posted) {
+            posted = true;
+            frameClock.postFrameCallback(this);
+        }
+    }
+
+    private void deliver(float x, float y, long eventTimeMillis) {
+        float dX = x - deliveredX;
+        float dY = y - deliveredY;
+        pending = false;
+        displaced = x != this.x || y != this.y;
+        deliveredX = x;
+        deliveredY = y;
+        deliveredTime = eventTimeMillis;
+        client.onDrag(x, y, dX, dY, eventTimeMillis, velocityProvider);
+    }
+
+    /**
+     * Delivers the samples interpolated, or extrapolated within bounds, at {@code sampleTime}.
+     * Without new input a frame that would not move the delivered position delivers nothing and
+     * returns {@code false}, so resampling stops until the next event or {@link #endDrag()}.
+     */
+    private boolean resample(long sampleTime) {
+        sampleTime = Math.max(sampleTime, deliveredTime);
+        int newer = newestSample;
+        int older = previous(newer);
+        if (sampleTime <= sampleTimes[newer]) {
+            for (int i = 1; i < sampleCount - 1 && sampleTimes[older] > sampleTime; i++) {
+                newer = older;
+                older = previous(older);
+            }
+        } else {
+            long delta = sampleTimes[newer] - sampleTimes[older];
+            if (delta < RESAMPLE_MIN_DELTA_MILLIS) {
+                if (!pending)
+                    return false;
+                flush();
+                return true;
+            }
+            sampleTime = Math.min(sampleTime, sampleTimes[newer] + Math.min(delta / 2, RESAMPLE_MAX_PREDICTION_MILLIS));
+        }
+        long delta = sampleTimes[newer] - sampleTimes[older];
+        float alpha = delta > 0 ? Math.max(0f, (float) (sampleTime - sampleTimes[older]) / delta) : 1f;
+        float resampledX = sampleX[older] + (sampleX[newer] - sampleX[older]) * alpha;
+        float resampledY = sampleY[older] + (sampleY[newer] - sampleY[older]) * alpha;
+        if (!pending && resampledX == deliveredX && resampledY == deliveredY)
+            return false;
+        deliver(resampledX, resampledY, sampleTime);
+        return true;
+    }
+
+    private void addSample(long eventTimeMillis, float x, float y) {
+        int index;
+        if (sampleCount == 0) {
+            index = 0;
+            sampleCount = 1;
+        } else if (eventTimeMillis <= sampleTimes[newestSample]) {
+            if (eventTimeMillis < sampleTimes[newestSample])
+                return;
+            index = newestSample;
+        } else {
+            index = (newestSample + 1) % SAMPLE_COUNT;
+            if (sampleCount < SAMPLE_COUNT)
+                sampleCount++;
+        }
+        sampleTimes[index] = eventTimeMillis;
+        sampleX[index] = x;
+        sampleY[index] = y;
+        newestSample = index;
+    }
+
+    private int previous(int index) {
+        return index == 0 ? SAMPLE_COUNT - 1 : index - 1;
+    }
+}
@@ -2,7 +2,6 @@ import android.annotation.IntDef;
 import android.graphics.PointF;
 import android.util.Log;
 import android.view.MotionEvent;
-import android.view.VelocityTracker;
 
 import com.liner.linerlauncher.util.Math2;
 
@@ -23,7 +22,8 @@ public class DragGestureRecognizer {
     private float startX;
     private float startY;
     private final int touchSlop;
-    private VelocityTracker velocityTracker;
+    private VelocityEstimator velocityEstimator;
+    private boolean trackingVelocity;
     private final DragDescriptor[] dragDescriptors;
     private final DragDescriptor dragNone = new DragDescriptor(DragType.DRAG_NONE);
     private final DragDescriptor dragHorizontal = new DragDescriptor(DRAG_HORIZONTAL);
@@ -31,6 +31,16 @@ public class DragGestureRecognizer {
     private final DragDescriptor dragVertical = new DragDescriptor(DRAG_VERTICAL);
     private final DragDescriptor dragFreeForm = new DragDescriptor(DRAG_FREE_FORM);
     private boolean trackVelocity = true;
+    private boolean processHistory = false;
+    private DragFrameCoalescer frameCoalescer;
+    private boolean resampleDrags;
+    private EarlyCapturePolicy earlyCapturePolicy;
+    private int earlyCaptureSamples;
+    private boolean earlyCaptureHorizontal;
+    private boolean capturedEarly;
+    private long timeToCaptureMillis = -1;
+    private long eventTimeMillis;
+    private VelocityProvider velocityProvider;
     @RecognitionMode
     private int mode = 0;
     private int prevAction = -1;
@@ -75,6 +85,42 @@ public class DragGestureRecognizer {
         this.trackVelocity = trackVelocity;
     }
 
+    public void setShouldProcessHistory(boolean processHistory) {
+        this.processHistory = processHistory;
+    }
+
+    public void setFrameClock(FrameClock frameClock) {
+        if (frameCoalescer != null) {
+            frameCoalescer.endDrag();
+            frameCoalescer.cancel();
+        }
+        this.frameCoalescer = frameClock != null ? new DragFrameCoalescer(frameClock) : null;
+        if (frameCoalescer != null)
+            frameCoalescer.setResampling(resampleDrags);
+    }
+
+    public void setShouldResampleDrags(boolean resampleDrags) {
+        this.resampleDrags = resampleDrags;
+        if (frameCoalescer != null)
+            frameCoalescer.setResampling(resampleDrags);
+    }
+
+    public void setEarlyCapturePolicy(EarlyCapturePolicy earlyCapturePolicy) {
+        this.earlyCapturePolicy = earlyCapturePolicy;
+    }
+
+    public long getLastTimeToCaptureMillis() {
+        return timeToCaptureMillis;
+    }
+
+    public boolean wasLastCaptureEarly() {
+        return capturedEarly;
+    }
+
+    public int getCoalescedEventCount() {
+        return frameCoalescer != null ? frameCoalescer.getCoalescedEventCount() : 0;
+    }
+
     public boolean onTouchEvent(MotionEvent motionEvent) {
         return onTouchEvent(motionEvent, null);
     }
@@ -84,6 +130,8 @@ public class DragGestureRecognizer {
         float xVelocity;
         float yVelocity;
         if (trackVelocity || velocityProvider != null) {
+            this.eventTimeMillis = motionEvent.getEventTime();
+            this.velocityProvider = velocityProvider;
             int actionMasked = motionEvent.getActionMasked();
             float x = motionEvent.getX();
             float y = motionEvent.getY();
@@ -98,13 +146,13 @@ public class DragGestureRecognizer {
                         startY = y;
                         prevX = x;
                         prevY = y;
-                        if (velocityTracker != null) {
-                            velocityTracker.recycle();
-                            velocityTracker = null;
-                        }
+                        earlyCaptureSamples = 0;
+                        capturedEarly = false;
+                        trackingVelocity = trackVelocity;
                         if (trackVelocity) {
-                            velocityTracker = VelocityTracker.obtain();
-                            velocityTracker.addMovement(motionEvent);
+                            if (velocityEstimator == null)
+                                velocityEstimator = new VelocityEstimator();
+                            velocityEstimator.addMovement(motionEvent);
                         }
                         this.currentDrag = testForPreemptedDragStart(motionEvent);
                         if (currentDrag != dragNone) {
@@ -114,17 +162,30 @@ public class DragGestureRecognizer {
                     }
                     break;
                 case MotionEvent.ACTION_MOVE:
-                    if (velocityTracker != null)
-                        velocityTracker.addMovement(motionEvent);
+                    if (trackingVelocity)
+                        velocityEstimator.addMovement(motionEvent);
                     if (currentDrag != dragNone) {
-                        emitProgressEvent(currentDrag, x, y, x - prevX, y - prevY);
+                        emitProgressEvent(currentDrag, motionEvent, x, y, x - prevX, y - prevY);
                     } else {
-                        DragDescriptor dragDescriptor = characterizeDrag(x, y);
-                        if (dragDescriptor != dragNone) {
-                            currentDrag = dragDescriptor;
-                            PointF dragStartPoint = getDragStartPoint(x, y);
-                            validateDragAndEmitStartEvent(currentDrag, startX, startY, dragStartPoint.x, dragStartPoint.y, x, y, false);
-                            emitProgressEvent(currentDrag, x, y, x - dragStartPoint.x, y - dragStartPoint.y);
+                        if (processHistory) {
+                            characterizeDragWithHistory(motionEvent, x, y);
+                        } else {
+                            DragDescriptor dragDescriptor = characterizeDrag(x, y);
+                            if (dragDescriptor != dragNone) {
+                                currentDrag = dragDescriptor;
+                                PointF dragStartPoint = getDragStartPoint(x, y);
+                                validateDragAndEmitStartEvent(currentDrag, startX, startY, dragStartPoint.x, dragStartPoint.y, x, y, false);
+                                emitProgressEvent(currentDrag, motionEvent, x, y, x - dragStartPoint.x, y - dragStartPoint.y);
+                            }
+                        }
+                        if (currentDrag == dragNone && earlyCapturePolicy != null) {
+                            DragDescriptor dragDescriptor = characterizeEarlyDrag(x, y);
+                            if (dragDescriptor != dragNone) {
+                                currentDrag = dragDescriptor;
+                                capturedEarly = true;
+                                validateDragAndEmitStartEvent(currentDrag, startX, startY, startX, startY, x, y, false);
+                                emitProgressEvent(currentDrag, motionEvent, x, y, x - startX, y - startY);
+                            }
                         }
                     }
                     prevX = x;
@@ -134,12 +195,10 @@ public class DragGestureRecognizer {
                 case MotionEvent.ACTION_CANCEL:
                 case MotionEvent.ACTION_UP:
                     if (currentDrag != dragNone) {
-                        if (velocityTracker != null) {
-                            velocityTracker.computeCurrentVelocity(1000);
-                            xVelocity = velocityTracker.getXVelocity();
-                            yVelocity = velocityTracker.getYVelocity();
-                            velocityTracker.recycle();
-                            velocityTracker = null;
+                        if (trackingVelocity) {
+                            velocityEstimator.addMovement(motionEvent);
+                            xVelocity = velocityEstimator.getXVelocity();
+                            yVelocity = velocityEstimator.getYVelocity();
                         } else if (velocityProvider != null) {
                             yVelocity = velocityProvider.getYVelocity();
                             xVelocity = velocityProvider.getXVelocity();
@@ -150,31 +209,63 @@ public class DragGestureRecognizer {
                         emitEndEvent(currentDrag, x, y, xVelocity, yVelocity, actionMasked == MotionEvent.ACTION_CANCEL);
                     }
                     currentDrag = dragNone;
+                    trackingVelocity = false;
                     break;
                 default:
                     intercepted = false;
             }
             prevAction = actionMasked;
+            this.velocityProvider = null;
             return intercepted;
         }
         throw new IllegalArgumentException("velocityProvider cannot be null if trackVelocity is false.");
     }
 
+    private void characterizeDragWithHistory(MotionEvent motionEvent, float x, float y) {
+        int historySize = motionEvent.getHistorySize();
+        for (int h = 0; h <= historySize; h++) {
+            float sampleX = h < historySize ? motionEvent.getHistoricalX(h) : x;
+            float sampleY = h < historySize ? motionEvent.getHistoricalY(h) : y;
+            DragDescriptor dragDescriptor = characterizeDrag(sampleX, sampleY);
+            if (dragDescriptor != dragNone) {
+                currentDrag = dragDescriptor;
+                PointF dragStartPoint = getDragStartPoint(sampleX, sampleY);
+                validateDragAndEmitStartEvent(currentDrag, startX, startY, dragStartPoint.x, dragStartPoint.y, sampleX, sampleY, false);
+                emitProgressEvent(currentDrag, motionEvent, x, y, x - dragStartPoint.x, y - dragStartPoint.y);
+                return;
+            }
+            prevX = sampleX;
+            prevY = sampleY;
+        }
+    }
+
     private void validateDragAndEmitStartEvent(DragDescriptor dragDescriptor, float f, float f2, float x, float y, float f5, float f6, boolean z) {
         dragDescriptor.valid = true;
         if (dragDescriptor.client != null)
             dragDescriptor.valid = dragDescriptor.client.validateDrag(f, f2, x, y, f5, f6, z);
+        if (dragDescriptor.valid) {
+            timeToCaptureMillis = eventTimeMillis - downTime;
+        } else {
+            capturedEarly = false;
+        }
         if (dragDescriptor.client != null && dragDescriptor.valid)
             dragDescriptor.client.onDragStart(x, y);
     }
 
-    private void emitProgressEvent(DragDescriptor dragDescriptor, float x, float y, float dX, float dY) {
+    private void emitProgressEvent(DragDescriptor dragDescriptor, MotionEvent motionEvent, float x, float y, float dX, float dY) {
         if (dragDescriptor.client != null && dragDescriptor.valid) {
-            dragDescriptor.client.onDrag(x, y, dX, dY);
+            VelocityProvider dragVelocityProvider = trackingVelocity ? velocityEstimator : velocityProvider;
+            if (frameCoalescer != null) {
+                frameCoalescer.onDrag(dragDescriptor.client, motionEvent, x, y, dX, dY, eventTimeMillis, dragVelocityProvider);
+            } else {
+                dragDescriptor.client.onDrag(x, y, dX, dY, eventTimeMillis, dragVelocityProvider);
+            }
         }
     }
 
     private void emitEndEvent(DragDescriptor dragDescriptor, float x, float y, float xVelocity, float yVelocity, boolean z) {
+        if (frameCoalescer != null)
+            frameCoalescer.endDrag();
         if (dragDescriptor.client != null && dragDescriptor.valid) {
             dragDescriptor.client.onDragEnd(x, y, xVelocity, yVelocity, z);
         }
@@ -212,6 +303,32 @@ public class DragGestureRecognizer {
         throw new RuntimeException(String.format(Locale.getDefault(), "Invalid number of intersections for line ((%f, %f), (%f, %f)) and circle ((%f, %f), %d)", prevX, prevY, x, y, startX, startY, touchSlop));
     }
 
+    private DragDescriptor characterizeEarlyDrag(float x, float y) {
+        VelocityProvider dragVelocityProvider = trackingVelocity ? velocityEstimator : velocityProvider;
+        if (dragVelocityProvider == null)
+            return dragNone;
+        float xVelocity = dragVelocityProvider.getXVelocity();
+        float yVelocity = dragVelocityProvider.getYVelocity();
+        if (!earlyCapturePolicy.isConfident(x - startX, y - startY, xVelocity, yVelocity)) {
+            earlyCaptureSamples = 0;
+            return dragNone;
+        }
+        boolean horizontal = Math.abs(xVelocity) >= Math.abs(yVelocity);
+        if (earlyCaptureSamples > 0 && horizontal != earlyCaptureHorizontal)
+            earlyCaptureSamples = 0;
+        earlyCaptureHorizontal = horizontal;
+        earlyCaptureSamples++;
+        if (earlyCaptureSamples < earlyCapturePolicy.getMinConsistentSamples())
+            return dragNone;
+        if (mode == MODE_FREE_FORM)
+            return dragFreeForm;
+        if (horizontal && Math.abs(xVelocity) >= Math.abs(yVelocity) * 2f && dragHorizontalStrict.client != null)
+            return dragHorizontalStrict;
+        if (horizontal)
+            return dragHorizontal;
+        return dragVertical;
+    }
+
     private DragDescriptor characterizeDrag(float x, float y) {
         if (Math2.distance(startX, startY, x, y) < ((float) touchSlop))
             return dragNone;
@@ -20,6 +20,10 @@ public interface DragRecognizerClient {
 
     void onDrag(float x, float y, float dX, float dY);
 
+    default void onDrag(float x, float y, float dX, float dY, long eventTimeMillis, VelocityProvider velocityProvider) {
+        onDrag(x, y, dX, dY);
+    }
+
     void onDragEnd(float x, float y, float xVelocity, float yVelocity, boolean z);
 
     void onDragStart(float x, float y);
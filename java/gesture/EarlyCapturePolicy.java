@@ -0,0 +1,39 @@
+/**
+ * Decides when a drag that has not yet travelled the touch slop is already unambiguous enough
+ * to capture: the finger has to move at least {@code minDistance}, at {@code minVelocity} or
+ * faster along one axis, with that axis carrying at least {@code minDirectionConfidence} of the
+ * velocity and agreeing with the displacement for {@code minConsistentSamples} events in a row.
+ *
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public class EarlyCapturePolicy {
+    private final float minDistance;
+    private final float minVelocity;
+    private final float minDirectionConfidence;
+    private final int minConsistentSamples;
+
+    public EarlyCapturePolicy(float minDistance, float minVelocity, float minDirectionConfidence, int minConsistentSamples) {
+        this.minDistance = minDistance;
+        this.minVelocity = minVelocity;
+        this.minDirectionConfidence = minDirectionConfidence;
+        this.minConsistentSamples = minConsistentSamples;
+    }
+
+    public boolean isConfident(float dX, float dY, float xVelocity, float yVelocity) {
+        if (Math.hypot(dX, dY) < minDistance)
+            return false;
+        boolean horizontal = Math.abs(xVelocity) >= Math.abs(yVelocity);
+        float axisVelocity = horizontal ? xVelocity : yVelocity;
+        float axisDelta = horizontal ? dX : dY;
+        if (Math.abs(axisVelocity) < minVelocity || Math.signum(axisVelocity) != Math.signum(axisDelta))
+            return false;
+        float speed = (float) Math.hypot(xVelocity, yVelocity);
+        return Math.abs(axisVelocity) >= speed * minDirectionConfidence;
+    }
+
+    public int getMinConsistentSamples() {
+        return minConsistentSamples;
+    }
+}
@@ -1,3 +1,4 @@
+import android.graphics.RectF;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
@@ -13,11 +14,13 @@ public class EdgeSwipeGestureRecognizer implements GestureRecognizer {
     @DragGestureRecognizer.DragType
     private final int dragType;
     private final DragGestureRecognizer dragGestureRecognizer;
+    private TouchRegionProvider touchRegionProvider;
 
     public EdgeSwipeGestureRecognizer(DragRecognizerClient dragRecognizerClient, int touchSlop, @DragGestureRecognizer.DragType int dragType) {
         this.dragType = dragType;
         dragGestureRecognizer = new DragGestureRecognizer(touchSlop);
         dragGestureRecognizer.setShouldTrackVelocity(false);
+        dragGestureRecognizer.setShouldProcessHistory(true);
         dragGestureRecognizer.setClient(dragType, dragRecognizerClient);
     }
 
@@ -33,6 +36,35 @@ public class EdgeSwipeGestureRecognizer implements GestureRecognizer {
         return IGNORE;
     }
 
+    public void setFrameClock(FrameClock frameClock) {
+        dragGestureRecognizer.setFrameClock(frameClock);
+    }
+
+    public void setShouldResampleDrags(boolean resampleDrags) {
+        dragGestureRecognizer.setShouldResampleDrags(resampleDrags);
+    }
+
+    public void setEarlyCapturePolicy(EarlyCapturePolicy earlyCapturePolicy) {
+        dragGestureRecognizer.setEarlyCapturePolicy(earlyCapturePolicy);
+    }
+
+    public long getLastTimeToCaptureMillis() {
+        return dragGestureRecognizer.getLastTimeToCaptureMillis();
+    }
+
+    public boolean wasLastCaptureEarly() {
+        return dragGestureRecognizer.wasLastCaptureEarly();
+    }
+
+    public void setTouchRegionProvider(TouchRegionProvider touchRegionProvider) {
+        this.touchRegionProvider = touchRegionProvider;
+    }
+
+    @Override
+    public boolean getTouchRegion(@NonNull View view, @NonNull RectF outRegion) {
+        return touchRegionProvider != null && touchRegionProvider.getTouchRegion(outRegion);
+    }
+
     @Override
     public void onCapturedTouchEvent(@NonNull View view, @NonNull MotionEvent motionEvent, @NonNull VelocityProvider velocityProvider) {
         dragGestureRecognizer.onTouchEvent(motionEvent, velocityProvider);
@@ -0,0 +1,14 @@
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+/**
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public interface FrameClock {
+    void postFrameCallback(@NonNull Choreographer.FrameCallback frameCallback);
+
+    void removeFrameCallback(@NonNull Choreographer.FrameCallback frameCallback);
+}
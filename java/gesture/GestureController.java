@@ -10,9 +10,8 @@ import com.liner.linerlauncher.trayui.UiMode;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.util.ArrayList;
 import java.util.EnumMap;
-import java.util.List;
+import java.util.IdentityHashMap;
 
 /**
  * @author : "Line'R"
@@ -23,25 +22,48 @@ import java.util.List;
 public class GestureController implements GestureRegistry{
     @CaptureMode
     private int captureMode;
+    @DispatchMode
+    private int dispatchMode;
+    @VelocityEstimator.Strategy
+    private int velocityStrategy = VelocityEstimator.Strategy.STRATEGY_LSQ2;
     private SharedVelocityTracker sharedVelocityTracker;
     private final View view;
     private long eventTimeMillis;
-    private List<RecognizerWrapper> recognizerWrapperList;
-    private List<RecognizerWrapper> pendingRecognizers;
+    private RecognizerWrapper[] recognizerWrappers;
+    private RecognizerWrapper[] activeRecognizers;
+    private RecognizerWrapper[] pendingRecognizers;
+    private UiMode uiMode;
+    private boolean adaptiveOrdering;
+    private final IdentityHashMap<RecognizerWrapper[], RecognizerWrapper[]> orderedRecognizers = new IdentityHashMap<>();
+    private long gestureCount;
+    private long observedCallCount;
     private final Registry gestureRegistry = new Registry();
+    private final TouchRegionIndex touchRegionIndex = new TouchRegionIndex();
     private GestureRecognizer capturingRecognizer;
     private RecognizerWrapper capturingWrapper;
+    private MotionEvent lastDispatchedEvent;
+    private long lastDispatchedEventTime;
+    private int lastDispatchedAction;
+    private int lastDispatchedHistorySize;
+    private float lastDispatchedX;
+    private float lastDispatchedY;
+    private boolean lastDispatchResult;
+    private int eventSequence;
+    private int skippedEventCount;
 
     public GestureController(View view) {
         this.view = view;
         this.captureMode = UNDECIDED;
+        this.dispatchMode = DispatchMode.DISPATCH_ALL;
         this.eventTimeMillis = -1;
-        recognizerWrapperList = new ArrayList<>();
+        recognizerWrappers = Registry.EMPTY;
+        activeRecognizers = Registry.EMPTY;
         capturingRecognizer = null;
         capturingWrapper = null;
     }
 
     public void setUiMode(UiMode uiMode){
+        this.uiMode = uiMode;
         if(uiMode == UiMode.MODE_NONE){
             this.pendingRecognizers = gestureRegistry.getAllRecognizers();
         } else {
@@ -49,18 +71,85 @@ public class GestureController implements GestureRegistry{
         }
     }
 
+    public void invalidateTouchRegions() {
+        touchRegionIndex.invalidate();
+    }
+
+    public void setDispatchMode(@DispatchMode int dispatchMode) {
+        this.dispatchMode = dispatchMode;
+        this.lastDispatchedEvent = null;
+    }
+
+    /**
+     * Lets the controller reorder dispatch between gestures so recognizers that usually decide
+     * (capture or ignore) are asked first. Pinned recognizers always keep their registration order
+     * ahead of the others.
+     */
+    public void setAdaptiveOrdering(boolean adaptiveOrdering) {
+        this.adaptiveOrdering = adaptiveOrdering;
+        orderedRecognizers.clear();
+    }
+
+    public float getObservedCallsPerGesture() {
+        return gestureCount > 0 ? ((float) observedCallCount) / gestureCount : 0f;
+    }
+
+    public void setVelocityStrategy(@VelocityEstimator.Strategy int velocityStrategy) {
+        this.velocityStrategy = velocityStrategy;
+    }
+
+    @DispatchMode
+    public int getDispatchMode() {
+        return dispatchMode;
+    }
+
     @CaptureMode
     public int getCaptureMode() {
         return captureMode;
     }
 
-    private void markAlLAsReady(List<RecognizerWrapper> recognizerWrappers){
+    public int getEventSequence() {
+        return eventSequence;
+    }
+
+    public int getSkippedEventCount() {
+        return skippedEventCount;
+    }
+
+    private void markAlLAsReady(RecognizerWrapper[] recognizerWrappers){
         for (RecognizerWrapper wrapper : recognizerWrappers)
             wrapper.status = RecognizerStatus.STATUS_READY;
     }
 
     @CallSuper
     public boolean onTouchEvent(@NonNull MotionEvent motionEvent) {
+        if (dispatchMode == DispatchMode.DISPATCH_ONCE) {
+            if (isLastDispatchedEvent(motionEvent)) {
+                skippedEventCount++;
+                return lastDispatchResult || motionEvent.getActionMasked() == MotionEvent.ACTION_DOWN;
+            }
+            lastDispatchedEvent = motionEvent;
+            lastDispatchedEventTime = motionEvent.getEventTime();
+            lastDispatchedAction = motionEvent.getAction();
+            lastDispatchedHistorySize = motionEvent.getHistorySize();
+            lastDispatchedX = motionEvent.getX();
+            lastDispatchedY = motionEvent.getY();
+            lastDispatchResult = dispatchTouchEvent(motionEvent);
+            return lastDispatchResult;
+        }
+        return dispatchTouchEvent(motionEvent);
+    }
+
+    private boolean isLastDispatchedEvent(MotionEvent motionEvent) {
+        return motionEvent == lastDispatchedEvent
+                && motionEvent.getEventTime() == lastDispatchedEventTime
+                && motionEvent.getAction() == lastDispatchedAction
+                && motionEvent.getHistorySize() == lastDispatchedHistorySize
+                && motionEvent.getX() == lastDispatchedX
+                && motionEvent.getY() == lastDispatchedY;
+    }
+
+    private boolean dispatchTouchEvent(@NonNull MotionEvent motionEvent) {
         int actionMasked = motionEvent.getActionMasked();
         boolean intercepted = false;
         switch (actionMasked) {
@@ -71,30 +160,40 @@ public class GestureController implements GestureRegistry{
                     return true;
                 } else {
                     eventTimeMillis = motionEvent.getEventTime();
+                    eventSequence = 0;
                     captureMode = UNDECIDED;
-                    sharedVelocityTracker = SharedVelocityTracker.obtain();
+                    sharedVelocityTracker = SharedVelocityTracker.obtain(velocityStrategy);
                     capturingRecognizer = null;
                     capturingWrapper = null;
                     if(pendingRecognizers != null){
-                        recognizerWrapperList = pendingRecognizers;
+                        activeRecognizers = pendingRecognizers;
                         pendingRecognizers = null;
+                        touchRegionIndex.invalidate();
                     }
-                    markAlLAsReady(recognizerWrapperList);
+                    recognizerWrappers = adaptiveOrdering ? getOrderedRecognizers(activeRecognizers) : activeRecognizers;
+                    gestureCount++;
+                    markAlLAsReady(recognizerWrappers);
+                    if (touchRegionIndex.isDirty())
+                        touchRegionIndex.rebuild(view, recognizerWrappers);
+                    touchRegionIndex.deactivateMissedRecognizers(motionEvent.getX(), motionEvent.getY());
                     break;
                 }
         }
+        eventSequence++;
         sharedVelocityTracker.addMovement(motionEvent);
         switch (captureMode) {
             case UNDECIDED:
-                for (RecognizerWrapper recognizerWrapper : recognizerWrapperList) {
+                for (RecognizerWrapper recognizerWrapper : recognizerWrappers) {
                     int status = recognizerWrapper.status;
                     if (status != RecognizerStatus.STATUS_INACTIVE) {
                         if (status == RecognizerStatus.STATUS_READY)
                             recognizerWrapper.status = RecognizerStatus.STATUS_OBSERVING;
                         int touchResult = recognizerWrapper.recognizer.onObservedTouchEvent(view, motionEvent, sharedVelocityTracker);
+                        observedCallCount++;
                         if (touchResult != GestureRecognizer.Result.OBSERVE) {
                             switch (touchResult) {
                                 case GestureRecognizer.Result.CAPTURE:
+                                    recognizerWrapper.captureCount++;
                                     captureMode = CaptureMode.CAPTURED;
                                     capturingRecognizer = recognizerWrapper.recognizer;
                                     capturingWrapper = recognizerWrapper;
@@ -103,6 +202,7 @@ public class GestureController implements GestureRegistry{
                                     intercepted = true;
                                     break;
                                 case GestureRecognizer.Result.IGNORE:
+                                    recognizerWrapper.ignoreCount++;
                                     recognizerWrapper.status = RecognizerStatus.STATUS_INACTIVE;
                                     recognizerWrapper.recognizer.onObservedTouchEvent(view, makeCancelEvent(motionEvent.getX(), motionEvent.getY()), sharedVelocityTracker);
                                     break;
@@ -130,6 +230,12 @@ public class GestureController implements GestureRegistry{
         }
 
         if (actionMasked == MotionEvent.ACTION_CANCEL || actionMasked == MotionEvent.ACTION_UP) {
+            if (captureMode == UNDECIDED) {
+                for (RecognizerWrapper wrapper : recognizerWrappers) {
+                    if (wrapper.status == RecognizerStatus.STATUS_OBSERVING)
+                        wrapper.observeCount++;
+                }
+            }
             sharedVelocityTracker.recycle();
         }
 
@@ -142,64 +248,183 @@ public class GestureController implements GestureRegistry{
 
     private void deactivateNonCapturingRecognizers(float x, float y) {
         MotionEvent cancelEvent = makeCancelEvent(x, y);
-        for (RecognizerWrapper wrapper : recognizerWrapperList) {
+        for (RecognizerWrapper wrapper : recognizerWrappers) {
             if (wrapper.status != RecognizerStatus.STATUS_CAPTURING) {
-                if (wrapper.status == RecognizerStatus.STATUS_OBSERVING)
+                if (wrapper.status == RecognizerStatus.STATUS_OBSERVING) {
+                    wrapper.observeCount++;
                     wrapper.recognizer.onObservedTouchEvent(view, cancelEvent, sharedVelocityTracker);
+                }
                 wrapper.status = RecognizerStatus.STATUS_INACTIVE;
             }
         }
         cancelEvent.recycle();
     }
 
+    private RecognizerWrapper[] getOrderedRecognizers(RecognizerWrapper[] snapshot) {
+        RecognizerWrapper[] ordered = orderedRecognizers.get(snapshot);
+        if (ordered == null) {
+            ordered = snapshot.clone();
+            orderedRecognizers.put(snapshot, ordered);
+        }
+        for (RecognizerWrapper wrapper : ordered)
+            wrapper.decayStatistics();
+        for (int i = 1; i < ordered.length; i++) {
+            RecognizerWrapper wrapper = ordered[i];
+            int j = i - 1;
+            while (j >= 0 && wrapper.dispatchBefore(ordered[j])) {
+                ordered[j + 1] = ordered[j];
+                j--;
+            }
+            ordered[j + 1] = wrapper;
+        }
+        return ordered;
+    }
+
     @Override
     public void registerRecognizer(UiMode uiMode, GestureRecognizer gestureRecognizer) {
-         gestureRegistry.registerRecognizer(uiMode, gestureRecognizer);
+        registerRecognizer(uiMode, gestureRecognizer, false);
+    }
+
+    public void registerRecognizer(UiMode uiMode, GestureRecognizer gestureRecognizer, boolean pinned) {
+        gestureRegistry.registerRecognizer(uiMode, gestureRecognizer, pinned);
+        onRegistryChanged();
     }
 
+    @Override
+    public void unregisterRecognizer(UiMode uiMode, GestureRecognizer gestureRecognizer) {
+        gestureRegistry.unregisterRecognizer(uiMode, gestureRecognizer);
+        onRegistryChanged();
+    }
+
+    private void onRegistryChanged() {
+        orderedRecognizers.clear();
+        touchRegionIndex.invalidate();
+        if (uiMode != null)
+            setUiMode(uiMode);
+    }
+
+    /**
+     * Keeps precomputed recognizer snapshots for every {@link UiMode} and for the "all" set.
+     * Snapshots are rebuilt only from {@link #registerRecognizer} and {@link #unregisterRecognizer}
+     * and must be treated as read-only, so switching modes on every tray callback costs a lookup
+     * instead of a list copy.
+     */
     public static class Registry implements GestureRegistry {
-        private final EnumMap<UiMode, List<RecognizerWrapper>> library;
+        static final RecognizerWrapper[] EMPTY = new RecognizerWrapper[0];
+        private final EnumMap<UiMode, RecognizerWrapper[]> library;
+        private RecognizerWrapper[] allRecognizers;
 
         private Registry() {
             this.library = new EnumMap<>(UiMode.class);
+            this.allRecognizers = EMPTY;
         }
 
         @Override
         public void registerRecognizer(UiMode uiMode, GestureRecognizer gestureRecognizer) {
-            List<RecognizerWrapper> recognizerWrappers = library.get(uiMode);
-            if (recognizerWrappers == null) {
-                recognizerWrappers = new ArrayList<>();
-                library.put(uiMode, recognizerWrappers);
+            registerRecognizer(uiMode, gestureRecognizer, false);
+        }
+
+        public void registerRecognizer(UiMode uiMode, GestureRecognizer gestureRecognizer, boolean pinned) {
+            RecognizerWrapper[] recognizerWrappers = getRecognizers(uiMode);
+            RecognizerWrapper[] updated = new RecognizerWrapper[recognizerWrappers.length + 1];
+            System.arraycopy(recognizerWrappers, 0, updated, 0, recognizerWrappers.length);
+            updated[recognizerWrappers.length] = new RecognizerWrapper(gestureRecognizer, pinned);
+            library.put(uiMode, updated);
+            rebuildAllRecognizers();
+        }
+
+        @Override
+        public void unregisterRecognizer(UiMode uiMode, GestureRecognizer gestureRecognizer) {
+            RecognizerWrapper[] recognizerWrappers = getRecognizers(uiMode);
+            for (int i = 0; i < recognizerWrappers.length; i++) {
+                if (recognizerWrappers[i].recognizer == gestureRecognizer) {
+                    if (recognizerWrappers.length == 1) {
+                        library.remove(uiMode);
+                    } else {
+                        RecognizerWrapper[] updated = new RecognizerWrapper[recognizerWrappers.length - 1];
+                        System.arraycopy(recognizerWrappers, 0, updated, 0, i);
+                        System.arraycopy(recognizerWrappers, i + 1, updated, i, updated.length - i);
+                        library.put(uiMode, updated);
+                    }
+                    rebuildAllRecognizers();
+                    return;
+                }
             }
-            recognizerWrappers.add(new RecognizerWrapper(gestureRecognizer));
-            library.put(uiMode, recognizerWrappers);
         }
 
-        public List<RecognizerWrapper> getRecognizers(UiMode uiMode) {
-            List<RecognizerWrapper> recognizerWrappers = library.get(uiMode);
+        public RecognizerWrapper[] getRecognizers(UiMode uiMode) {
+            RecognizerWrapper[] recognizerWrappers = library.get(uiMode);
             if (recognizerWrappers != null)
                 return recognizerWrappers;
-            recognizerWrappers = new ArrayList<>();
-            library.put(uiMode, recognizerWrappers);
-            return recognizerWrappers;
+            return EMPTY;
+        }
+
+        public RecognizerWrapper[] getAllRecognizers(){
+            return allRecognizers;
         }
 
-        public List<RecognizerWrapper> getAllRecognizers(){
-            List<RecognizerWrapper> recognizerWrappers = new ArrayList<>();
-            for(List<RecognizerWrapper> wrappers:library.values())
-                recognizerWrappers.addAll(wrappers);
-            return recognizerWrappers;
+        private void rebuildAllRecognizers() {
+            int count = 0;
+            for (RecognizerWrapper[] wrappers : library.values())
+                count += wrappers.length;
+            RecognizerWrapper[] recognizerWrappers = new RecognizerWrapper[count];
+            int offset = 0;
+            for (RecognizerWrapper[] wrappers : library.values()) {
+                System.arraycopy(wrappers, 0, recognizerWrappers, offset, wrappers.length);
+                offset += wrappers.length;
+            }
+            allRecognizers = recognizerWrappers;
         }
     }
 
 
     public static class RecognizerWrapper {
+        private static final int STATISTICS_DECAY_THRESHOLD = 1024;
         @RecognizerStatus
         public int status = 0;
         public final GestureRecognizer recognizer;
+        public final boolean pinned;
+        int observeCount;
+        int ignoreCount;
+        int captureCount;
 
         public RecognizerWrapper(@NonNull GestureRecognizer gestureRecognizer) {
+            this(gestureRecognizer, false);
+        }
+
+        public RecognizerWrapper(@NonNull GestureRecognizer gestureRecognizer, boolean pinned) {
             this.recognizer = gestureRecognizer;
+            this.pinned = pinned;
+        }
+
+        public int getObserveCount() {
+            return observeCount;
+        }
+
+        public int getIgnoreCount() {
+            return ignoreCount;
+        }
+
+        public int getCaptureCount() {
+            return captureCount;
+        }
+
+        void decayStatistics() {
+            if (observeCount + ignoreCount + captureCount > STATISTICS_DECAY_THRESHOLD) {
+                observeCount >>= 1;
+                ignoreCount >>= 1;
+                captureCount >>= 1;
+            }
+        }
+
+        float getDecisionScore() {
+            return (captureCount * 2f + ignoreCount) / (observeCount + ignoreCount + captureCount + 1f);
+        }
+
+        boolean dispatchBefore(RecognizerWrapper other) {
+            if (pinned != other.pinned)
+                return pinned;
+            return !pinned && getDecisionScore() > other.getDecisionScore();
         }
     }
 
@@ -211,6 +436,17 @@ public class GestureController implements GestureRegistry{
         int UNDECIDED = 0;
     }
 
+    /**
+     * {@link #DISPATCH_ONCE} drops an event that was already dispatched, so a container feeding
+     * both its intercept and touch callbacks into the controller processes every event once.
+     */
+    @IntDef({DispatchMode.DISPATCH_ALL, DispatchMode.DISPATCH_ONCE})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface DispatchMode {
+        int DISPATCH_ALL = 0;
+        int DISPATCH_ONCE = 1;
+    }
+
     @IntDef({RecognizerStatus.STATUS_READY, RecognizerStatus.STATUS_OBSERVING, RecognizerStatus.STATUS_INACTIVE, RecognizerStatus.STATUS_CAPTURING})
     @Retention(RetentionPolicy.SOURCE)
     @interface RecognizerStatus {
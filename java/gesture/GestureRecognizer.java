@@ -1,4 +1,5 @@
 import android.annotation.IntDef;
+import android.graphics.RectF;
 import android.view.MotionEvent;
 import android.view.View;
 
@@ -26,4 +27,12 @@ public interface GestureRecognizer {
 
     @Result
     int onObservedTouchEvent(@NonNull View view, @NonNull MotionEvent motionEvent, @NonNull VelocityProvider velocityProvider);
+
+    /**
+     * Publishes the region a gesture has to start in for this recognizer to ever capture it.
+     * Recognizers returning {@code false} are offered every touch.
+     */
+    default boolean getTouchRegion(@NonNull View view, @NonNull RectF outRegion) {
+        return false;
+    }
 }
\ No newline at end of file
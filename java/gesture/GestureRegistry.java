@@ -5,4 +5,6 @@
  **/
 public interface GestureRegistry {
     void registerRecognizer(UiMode uiMode, GestureRecognizer gestureRecognizer);
+
+    void unregisterRecognizer(UiMode uiMode, GestureRecognizer gestureRecognizer);
 }
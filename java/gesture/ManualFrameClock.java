@@ -0,0 +1,41 @@
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Frame clock driven by hand, for tests and off-device tooling. Callbacks posted while a frame
+ * is being dispatched run on the next {@link #doFrame(long)}.
+ *
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public class ManualFrameClock implements FrameClock {
+    private final List<Choreographer.FrameCallback> pendingCallbacks = new ArrayList<>();
+    private final List<Choreographer.FrameCallback> runningCallbacks = new ArrayList<>();
+
+    @Override
+    public void postFrameCallback(@NonNull Choreographer.FrameCallback frameCallback) {
+        pendingCallbacks.add(frameCallback);
+    }
+
+    @Override
+    public void removeFrameCallback(@NonNull Choreographer.FrameCallback frameCallback) {
+        pendingCallbacks.remove(frameCallback);
+    }
+
+    public boolean hasPendingCallbacks() {
+        return !pendingCallbacks.isEmpty();
+    }
+
+    public void doFrame(long frameTimeNanos) {
+        runningCallbacks.addAll(pendingCallbacks);
+        pendingCallbacks.clear();
+        for (int i = 0; i < runningCallbacks.size(); i++)
+            runningCallbacks.get(i).doFrame(frameTimeNanos);
+        runningCallbacks.clear();
+    }
+}
@@ -1,6 +1,5 @@
 import android.util.Pools;
 import android.view.MotionEvent;
-import android.view.VelocityTracker;
 
 /**
  * @author : "Line'R"
@@ -9,82 +8,70 @@ import android.view.VelocityTracker;
  **/
 public class SharedVelocityTracker implements VelocityProvider {
     private static final Pools.SimplePool<SharedVelocityTracker> pool = new Pools.SimplePool<>(1);
-    private boolean dirty = false;
-    private VelocityTracker velocityTracker;
+    private final VelocityEstimator velocityEstimator = new VelocityEstimator();
+    private boolean tracking = false;
 
     public static SharedVelocityTracker obtain() {
+        return obtain(VelocityEstimator.Strategy.STRATEGY_LSQ2);
+    }
+
+    public static SharedVelocityTracker obtain(@VelocityEstimator.Strategy int strategy) {
         SharedVelocityTracker acquire = pool.acquire();
         if (acquire == null) {
             acquire = new SharedVelocityTracker();
         }
-        acquire.initialize();
+        acquire.initialize(strategy);
         return acquire;
     }
 
-    void initialize() {
-        this.dirty = false;
-        this.velocityTracker = VelocityTracker.obtain();
+    void initialize(@VelocityEstimator.Strategy int strategy) {
+        this.tracking = true;
+        this.velocityEstimator.clear();
+        this.velocityEstimator.setStrategy(strategy);
     }
 
     public void recycle() {
-        if (velocityTracker != null) {
-            velocityTracker.recycle();
-            velocityTracker = null;
+        if (tracking) {
+            tracking = false;
             pool.release(this);
         }
     }
 
     public void addMovement(MotionEvent motionEvent) {
-        if (velocityTracker != null) {
-            dirty = true;
-            velocityTracker.addMovement(motionEvent);
-        }
+        if (tracking)
+            velocityEstimator.addMovement(motionEvent);
     }
 
     @Override
     public float getXVelocity() {
-        ensureFreshData();
-        if (velocityTracker != null)
-            return velocityTracker.getXVelocity();
+        if (tracking)
+            return velocityEstimator.getXVelocity();
         return 0;
     }
 
     @Override
     public float getXVelocity(int id) {
-        ensureFreshData();
-        if (velocityTracker != null)
-            return velocityTracker.getXVelocity(id);
+        if (tracking)
+            return velocityEstimator.getXVelocity(id);
         return 0;
     }
 
     @Override
     public float getYVelocity() {
-        if (this.velocityTracker != null) {
-            ensureFreshData();
-            if (velocityTracker != null)
-                return velocityTracker.getYVelocity();
-        }
+        if (tracking)
+            return velocityEstimator.getYVelocity();
         return 0;
     }
 
     @Override
     public float getYVelocity(int id) {
-        ensureFreshData();
-        if (velocityTracker != null)
-            return velocityTracker.getYVelocity(id);
+        if (tracking)
+            return velocityEstimator.getYVelocity(id);
         return 0;
     }
 
-    private void ensureFreshData() {
-        if (dirty) {
-            if (velocityTracker != null)
-                velocityTracker.computeCurrentVelocity(1000);
-            dirty = false;
-        }
-    }
-
     public void clear() {
-        if (velocityTracker != null)
-            velocityTracker.clear();
+        if (tracking)
+            velocityEstimator.clear();
     }
-}
\ No newline at end of file
+}
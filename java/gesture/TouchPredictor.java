@@ -0,0 +1,106 @@
+/**
+ * Extrapolates a finger position along one axis by a fixed lookahead, so a dragged surface can
+ * be drawn where the finger will be when the frame is presented rather than where it was sampled.
+ * Predictions are offsets from the latest real sample and are recomputed from every new sample,
+ * so any overshoot is corrected as soon as real data arrives. The error of past predictions
+ * against the real samples is tracked for tuning.
+ *
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public class TouchPredictor {
+    public static final long DEFAULT_LOOKAHEAD_MILLIS = 16;
+    private long lookaheadMillis;
+    private float maxPredictionDistance;
+    private boolean hasSample;
+    private long lastSampleTime;
+    private float lastSamplePosition;
+    private boolean hasPrediction;
+    private long predictionTargetTime;
+    private float predictedPosition;
+    private int errorCount;
+    private double errorSum;
+    private float maxError;
+
+    public TouchPredictor() {
+        this(DEFAULT_LOOKAHEAD_MILLIS, Float.MAX_VALUE);
+    }
+
+    public TouchPredictor(long lookaheadMillis, float maxPredictionDistance) {
+        this.lookaheadMillis = lookaheadMillis;
+        this.maxPredictionDistance = maxPredictionDistance;
+    }
+
+    public void setLookaheadMillis(long lookaheadMillis) {
+        this.lookaheadMillis = lookaheadMillis;
+    }
+
+    public long getLookaheadMillis() {
+        return lookaheadMillis;
+    }
+
+    public void setMaxPredictionDistance(float maxPredictionDistance) {
+        this.maxPredictionDistance = maxPredictionDistance;
+    }
+
+    public void reset() {
+        hasSample = false;
+        hasPrediction = false;
+    }
+
+    /**
+     * @param velocity velocity along the axis in pixels per second, or {@link Float#NaN} to derive
+     *                 it from the previous sample
+     * @return offset to add to {@code position} to reach the predicted position
+     */
+    public float predict(long eventTimeMillis, float position, float velocity) {
+        if (hasPrediction && hasSample && eventTimeMillis >= predictionTargetTime) {
+            long interval = eventTimeMillis - lastSampleTime;
+            float realPosition = interval > 0
+                    ? lastSamplePosition + (position - lastSamplePosition) * ((float) (predictionTargetTime - lastSampleTime) / interval)
+                    : position;
+            float error = Math.abs(predictedPosition - realPosition);
+            errorSum += error;
+            errorCount++;
+            maxError = Math.max(maxError, error);
+            hasPrediction = false;
+        }
+        if (Float.isNaN(velocity)) {
+            long interval = eventTimeMillis - lastSampleTime;
+            velocity = hasSample && interval > 0 ? (position - lastSamplePosition) * 1000f / interval : 0f;
+        }
+        hasSample = true;
+        lastSampleTime = eventTimeMillis;
+        lastSamplePosition = position;
+        float offset = velocity * lookaheadMillis / 1000f;
+        if (offset > maxPredictionDistance)
+            offset = maxPredictionDistance;
+        else if (offset < -maxPredictionDistance)
+            offset = -maxPredictionDistance;
+        if (!hasPrediction && lookaheadMillis > 0) {
+            hasPrediction = true;
+            predictionTargetTime = eventTimeMillis + lookaheadMillis;
+            predictedPosition = position + offset;
+        }
+        return offset;
+    }
+
+    public int getPredictionErrorCount() {
+        return errorCount;
+    }
+
+    public float getMeanPredictionError() {
+        return errorCount > 0 ? (float) (errorSum / errorCount) : 0f;
+    }
+
+    public float getMaxPredictionError() {
+        return maxError;
+    }
+
+    public void resetPredictionError() {
+        errorCount = 0;
+        errorSum = 0;
+        maxError = 0f;
+    }
+}
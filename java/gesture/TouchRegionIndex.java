@@ -0,0 +1,52 @@
+import android.graphics.RectF;
+import android.view.View;
+
+/**
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+class TouchRegionIndex {
+    private final RectF region = new RectF();
+    private GestureController.RecognizerWrapper[] wrappers = GestureController.Registry.EMPTY;
+    private float[] bounds = new float[0];
+    private int count;
+    private boolean dirty = true;
+
+    void invalidate() {
+        dirty = true;
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    void rebuild(View view, GestureController.RecognizerWrapper[] recognizerWrappers) {
+        if (wrappers.length < recognizerWrappers.length) {
+            wrappers = new GestureController.RecognizerWrapper[recognizerWrappers.length];
+            bounds = new float[recognizerWrappers.length * 4];
+        }
+        count = 0;
+        for (GestureController.RecognizerWrapper wrapper : recognizerWrappers) {
+            if (wrapper.recognizer.getTouchRegion(view, region)) {
+                int offset = count * 4;
+                bounds[offset] = region.left;
+                bounds[offset + 1] = region.top;
+                bounds[offset + 2] = region.right;
+                bounds[offset + 3] = region.bottom;
+                wrappers[count++] = wrapper;
+            }
+        }
+        for (int i = count; i < wrappers.length; i++)
+            wrappers[i] = null;
+        dirty = false;
+    }
+
+    void deactivateMissedRecognizers(float x, float y) {
+        for (int i = 0; i < count; i++) {
+            int offset = i * 4;
+            if (x < bounds[offset] || y < bounds[offset + 1] || x > bounds[offset + 2] || y > bounds[offset + 3])
+                wrappers[i].status = GestureController.RecognizerStatus.STATUS_INACTIVE;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+
+/**
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public interface TouchRegionProvider {
+    boolean getTouchRegion(@NonNull RectF outRegion);
+
+    interface OnTouchRegionChangedListener {
+        void onTouchRegionChanged();
+    }
+}
@@ -0,0 +1,265 @@
+import android.annotation.IntDef;
+import android.view.MotionEvent;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Pure-Java replacement for the platform VelocityTracker. Samples are kept in fixed primitive
+ * ring buffers per pointer id and velocities are cached per axis until a new sample arrives,
+ * so the estimator never allocates after construction. Velocities are in pixels per second.
+ *
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public class VelocityEstimator implements VelocityProvider {
+    private static final int MAX_POINTER_ID = 31;
+    private static final int POINTER_COUNT = MAX_POINTER_ID + 1;
+    private static final int HISTORY_SIZE = 20;
+    private static final long HORIZON_MILLIS = 100;
+    private static final long ASSUME_POINTER_STOPPED_MILLIS = 40;
+    @Strategy
+    private int strategy;
+    private final long[] sampleTimes = new long[POINTER_COUNT * HISTORY_SIZE];
+    private final float[] sampleX = new float[POINTER_COUNT * HISTORY_SIZE];
+    private final float[] sampleY = new float[POINTER_COUNT * HISTORY_SIZE];
+    private final int[] newestIndex = new int[POINTER_COUNT];
+    private final int[] sampleCount = new int[POINTER_COUNT];
+    private final float[] xVelocities = new float[POINTER_COUNT];
+    private final float[] yVelocities = new float[POINTER_COUNT];
+    private final double[] fitTimes = new double[HISTORY_SIZE];
+    private final double[] fitPositions = new double[HISTORY_SIZE];
+    private int xVelocityValid;
+    private int yVelocityValid;
+    private int activePointerId = -1;
+
+    public VelocityEstimator() {
+        this(Strategy.STRATEGY_LSQ2);
+    }
+
+    public VelocityEstimator(@Strategy int strategy) {
+        this.strategy = strategy;
+    }
+
+    public void setStrategy(@Strategy int strategy) {
+        if (this.strategy != strategy) {
+            this.strategy = strategy;
+            xVelocityValid = 0;
+            yVelocityValid = 0;
+        }
+    }
+
+    @Strategy
+    public int getStrategy() {
+        return strategy;
+    }
+
+    public void clear() {
+        for (int i = 0; i < POINTER_COUNT; i++)
+            sampleCount[i] = 0;
+        xVelocityValid = 0;
+        yVelocityValid = 0;
+        activePointerId = -1;
+    }
+
+    public void addMovement(MotionEvent motionEvent) {
+        int actionMasked = motionEvent.getActionMasked();
+        switch (actionMasked) {
+            case MotionEvent.ACTION_DOWN:
+                clear();
+                activePointerId = motionEvent.getPointerId(0);
+                break;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                clearPointer(motionEvent.getPointerId(motionEvent.getActionIndex()));
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+            case MotionEvent.ACTION_UP:
+                int pointerId = motionEvent.getPointerId(motionEvent.getActionIndex());
+                if (isValidPointerId(pointerId) && sampleCount[pointerId] > 0
+                        && motionEvent.getEventTime() - sampleTimes[pointerId * HISTORY_SIZE + newestIndex[pointerId]] > ASSUME_POINTER_STOPPED_MILLIS) {
+                    clearPointer(pointerId);
+                }
+                if (actionMasked == MotionEvent.ACTION_POINTER_UP && pointerId == activePointerId)
+                    activePointerId = motionEvent.getPointerId(motionEvent.getActionIndex() == 0 ? 1 : 0);
+                return;
+            case MotionEvent.ACTION_CANCEL:
+                return;
+        }
+        int pointerCount = motionEvent.getPointerCount();
+        int historySize = motionEvent.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            long eventTime = motionEvent.getHistoricalEventTime(h);
+            for (int p = 0; p < pointerCount; p++)
+                addSample(motionEvent.getPointerId(p), eventTime, motionEvent.getHistoricalX(p, h), motionEvent.getHistoricalY(p, h));
+        }
+        long eventTime = motionEvent.getEventTime();
+        for (int p = 0; p < pointerCount; p++)
+            addSample(motionEvent.getPointerId(p), eventTime, motionEvent.getX(p), motionEvent.getY(p));
+    }
+
+    public void addSample(int pointerId, long eventTimeMillis, float x, float y) {
+        if (!isValidPointerId(pointerId))
+            return;
+        if (activePointerId == -1)
+            activePointerId = pointerId;
+        int base = pointerId * HISTORY_SIZE;
+        int count = sampleCount[pointerId];
+        int index;
+        if (count == 0) {
+            index = 0;
+            count = 1;
+        } else {
+            long newestTime = sampleTimes[base + newestIndex[pointerId]];
+            if (eventTimeMillis < newestTime) {
+                index = 0;
+                count = 1;
+            } else if (eventTimeMillis == newestTime) {
+                index = newestIndex[pointerId];
+            } else {
+                index = (newestIndex[pointerId] + 1) % HISTORY_SIZE;
+                if (count < HISTORY_SIZE)
+                    count++;
+            }
+        }
+        sampleTimes[base + index] = eventTimeMillis;
+        sampleX[base + index] = x;
+        sampleY[base + index] = y;
+        newestIndex[pointerId] = index;
+        sampleCount[pointerId] = count;
+        int mask = ~(1 << pointerId);
+        xVelocityValid &= mask;
+        yVelocityValid &= mask;
+    }
+
+    @Override
+    public float getXVelocity() {
+        return getXVelocity(activePointerId);
+    }
+
+    @Override
+    public float getXVelocity(int id) {
+        if (!isValidPointerId(id))
+            return 0;
+        int bit = 1 << id;
+        if ((xVelocityValid & bit) == 0) {
+            xVelocities[id] = computeVelocity(id, sampleX);
+            xVelocityValid |= bit;
+        }
+        return xVelocities[id];
+    }
+
+    @Override
+    public float getYVelocity() {
+        return getYVelocity(activePointerId);
+    }
+
+    @Override
+    public float getYVelocity(int id) {
+        if (!isValidPointerId(id))
+            return 0;
+        int bit = 1 << id;
+        if ((yVelocityValid & bit) == 0) {
+            yVelocities[id] = computeVelocity(id, sampleY);
+            yVelocityValid |= bit;
+        }
+        return yVelocities[id];
+    }
+
+    private void clearPointer(int pointerId) {
+        if (!isValidPointerId(pointerId))
+            return;
+        sampleCount[pointerId] = 0;
+        int mask = ~(1 << pointerId);
+        xVelocityValid &= mask;
+        yVelocityValid &= mask;
+    }
+
+    private static boolean isValidPointerId(int pointerId) {
+        return pointerId >= 0 && pointerId <= MAX_POINTER_ID;
+    }
+
+    private float computeVelocity(int pointerId, float[] positions) {
+        int base = pointerId * HISTORY_SIZE;
+        int count = sampleCount[pointerId];
+        if (count < 2)
+            return 0;
+        int index = newestIndex[pointerId];
+        long newestTime = sampleTimes[base + index];
+        double newestPosition = positions[base + index];
+        int n = 0;
+        while (n < count) {
+            long age = newestTime - sampleTimes[base + index];
+            if (age > HORIZON_MILLIS)
+                break;
+            fitTimes[n] = -age;
+            fitPositions[n] = positions[base + index] - newestPosition;
+            n++;
+            index = index == 0 ? HISTORY_SIZE - 1 : index - 1;
+        }
+        if (n < 2)
+            return 0;
+        switch (strategy) {
+            case Strategy.STRATEGY_IMPULSE:
+                return (float) (computeImpulseVelocity(n) * 1000);
+            case Strategy.STRATEGY_LSQ2:
+            default:
+                return (float) (computeLeastSquaresVelocity(n) * 1000);
+        }
+    }
+
+    private double computeLeastSquaresVelocity(int n) {
+        double s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+        double p0 = 0, p1 = 0, p2 = 0;
+        for (int i = 0; i < n; i++) {
+            double t = fitTimes[i];
+            double t2 = t * t;
+            double p = fitPositions[i];
+            s1 += t;
+            s2 += t2;
+            s3 += t2 * t;
+            s4 += t2 * t2;
+            p0 += p;
+            p1 += p * t;
+            p2 += p * t2;
+        }
+        if (n >= 3) {
+            double determinant = n * (s2 * s4 - s3 * s3) - s1 * (s1 * s4 - s3 * s2) + s2 * (s1 * s3 - s2 * s2);
+            if (Math.abs(determinant) > 1e-9) {
+                double slope = n * (p1 * s4 - s3 * p2) - p0 * (s1 * s4 - s3 * s2) + s2 * (s1 * p2 - p1 * s2);
+                return slope / determinant;
+            }
+        }
+        double denominator = n * s2 - s1 * s1;
+        if (Math.abs(denominator) < 1e-9)
+            return 0;
+        return (n * p1 - s1 * p0) / denominator;
+    }
+
+    private double computeImpulseVelocity(int n) {
+        // Samples are stored newest first; walk them oldest to newest.
+        double work = 0;
+        for (int i = n - 2; i >= 0; i--) {
+            double dt = fitTimes[i] - fitTimes[i + 1];
+            if (dt <= 0)
+                continue;
+            double previousVelocity = kineticEnergyToVelocity(work);
+            double currentVelocity = (fitPositions[i] - fitPositions[i + 1]) / dt;
+            work += (currentVelocity - previousVelocity) * Math.abs(currentVelocity);
+            if (i == n - 2)
+                work *= 0.5;
+        }
+        return kineticEnergyToVelocity(work);
+    }
+
+    private static double kineticEnergyToVelocity(double work) {
+        return Math.signum(work) * Math.sqrt(2 * Math.abs(work));
+    }
+
+    @IntDef({Strategy.STRATEGY_LSQ2, Strategy.STRATEGY_IMPULSE})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Strategy {
+        int STRATEGY_LSQ2 = 0;
+        int STRATEGY_IMPULSE = 1;
+    }
+}
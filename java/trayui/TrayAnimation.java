@@ -0,0 +1,218 @@
+import android.animation.TimeInterpolator;
+import android.view.Choreographer;
+import android.view.animation.AccelerateDecelerateInterpolator;
+
+/**
+ * Frame-driven float animation that is created once per tray and retargeted in place.
+ * State and callbacks are primitive, so running it allocates nothing per start or per frame.
+ * Besides fixed-duration easing it can run an analytic damped spring that starts from a given
+ * velocity and ends once it settles, so its duration follows the distance and speed.
+ * Starting it again while it runs retargets it from its current value; passing the current
+ * velocity keeps the motion continuous.
+ *
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public class TrayAnimation implements Choreographer.FrameCallback {
+    private static final TimeInterpolator DEFAULT_INTERPOLATOR = new AccelerateDecelerateInterpolator();
+    private static final float SETTLE_DISTANCE = .5f;
+    private static final float SETTLE_VELOCITY = 5f;
+    private final FrameClock frameClock;
+    private final Listener listener;
+    private TimeInterpolator interpolator = DEFAULT_INTERPOLATOR;
+    private float from;
+    private float to;
+    private float value;
+    private float velocity;
+    private float startVelocity;
+    private long durationMillis;
+    private long startTimeNanos;
+    private long lastFrameTimeNanos;
+    private boolean spring;
+    private float springStiffness;
+    private float springDampingRatio;
+    private float springVelocity;
+    private boolean running;
+    private boolean posted;
+
+    public TrayAnimation(FrameClock frameClock, Listener listener) {
+        this.frameClock = frameClock;
+        this.listener = listener;
+    }
+
+    public void setInterpolator(TimeInterpolator interpolator) {
+        this.interpolator = interpolator;
+    }
+
+    public void start(float from, float to, long durationMillis) {
+        start(from, to, 0f, durationMillis);
+    }
+
+    /**
+     * Eases from {@code from} to {@code to} starting at the given velocity, following a cubic
+     * Hermite curve that arrives at rest. A velocity towards the target is limited so that the
+     * curve does not overshoot it.
+     *
+     * @param velocity initial velocity in units per second
+     */
+    public void start(float from, float to, float velocity, long durationMillis) {
+        if (velocity != 0f && durationMillis > 0) {
+            float maxVelocity = 3f * Math.abs(to - from) * 1000f / durationMillis;
+            if (Math.signum(velocity) == Math.signum(to - from) && Math.abs(velocity) > maxVelocity)
+                velocity = Math.signum(velocity) * maxVelocity;
+        }
+        this.spring = false;
+        this.from = from;
+        this.to = to;
+        this.value = from;
+        this.velocity = velocity;
+        this.startVelocity = velocity;
+        this.durationMillis = durationMillis;
+        begin();
+    }
+
+    /**
+     * @param velocity   initial velocity in units per second
+     * @param stiffness  spring stiffness for a unit mass
+     * @param dampingRatio 1 for critical damping, below 1 to overshoot
+     */
+    public void startSpring(float from, float to, float velocity, float stiffness, float dampingRatio) {
+        this.spring = true;
+        this.from = from;
+        this.to = to;
+        this.value = from;
+        this.velocity = velocity;
+        this.springVelocity = velocity;
+        this.springStiffness = stiffness;
+        this.springDampingRatio = dampingRatio;
+        begin();
+    }
+
+    private void begin() {
+        this.startTimeNanos = -1;
+        this.running = true;
+        if (!posted) {
+            posted = true;
+            frameClock.postFrameCallback(this);
+        }
+    }
+
+    public void cancel() {
+        running = false;
+        if (posted) {
+            posted = false;
+            frameClock.removeFrameCallback(this);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public float getValue() {
+        return value;
+    }
+
+    public float getTargetValue() {
+        return to;
+    }
+
+    /**
+     * @return the current velocity in units per second
+     */
+    public float getVelocity() {
+        return running ? velocity : 0f;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        posted = false;
+        if (!running)
+            return;
+        if (startTimeNanos < 0) {
+            startTimeNanos = frameTimeNanos;
+            lastFrameTimeNanos = frameTimeNanos;
+        }
+        boolean finished;
+        if (spring) {
+            finished = computeSpring((frameTimeNanos - startTimeNanos) / 1e9f);
+        } else {
+            float fraction = durationMillis > 0 ? Math.min(1f, (frameTimeNanos - startTimeNanos) / (durationMillis * 1000000f)) : 1f;
+            if (startVelocity != 0f) {
+                computeHermite(fraction);
+            } else {
+                float previousValue = value;
+                value = from + (to - from) * interpolator.getInterpolation(fraction);
+                if (frameTimeNanos > lastFrameTimeNanos)
+                    velocity = (value - previousValue) * 1e9f / (frameTimeNanos - lastFrameTimeNanos);
+            }
+            finished = fraction >= 1f;
+        }
+        lastFrameTimeNanos = frameTimeNanos;
+        listener.onAnimationUpdate(value);
+        if (!running || posted)
+            return;
+        if (finished) {
+            running = false;
+            listener.onAnimationEnd();
+        } else {
+            posted = true;
+            frameClock.postFrameCallback(this);
+        }
+    }
+
+    private void computeHermite(float s) {
+        float duration = durationMillis / 1000f;
+        float s2 = s * s;
+        float s3 = s2 * s;
+        float tangent = startVelocity * duration;
+        value = (2f * s3 - 3f * s2 + 1f) * from + (s3 - 2f * s2 + s) * tangent + (3f * s2 - 2f * s3) * to;
+        velocity = ((6f * s2 - 6f * s) * from + (3f * s2 - 4f * s + 1f) * tangent + (6f * s - 6f * s2) * to) / duration;
+    }
+
+    private boolean computeSpring(float t) {
+        float displacement = from - to;
+        float naturalFrequency = (float) Math.sqrt(springStiffness);
+        float damping = springDampingRatio * naturalFrequency;
+        float position;
+        if (springDampingRatio < 1f) {
+            float dampedFrequency = naturalFrequency * (float) Math.sqrt(1f - springDampingRatio * springDampingRatio);
+            float b = (springVelocity + damping * displacement) / dampedFrequency;
+            float decay = (float) Math.exp(-damping * t);
+            float cos = (float) Math.cos(dampedFrequency * t);
+            float sin = (float) Math.sin(dampedFrequency * t);
+            position = decay * (displacement * cos + b * sin);
+            velocity = decay * ((b * dampedFrequency - damping * displacement) * cos - (displacement * dampedFrequency + damping * b) * sin);
+        } else if (springDampingRatio == 1f) {
+            float b = springVelocity + naturalFrequency * displacement;
+            float decay = (float) Math.exp(-naturalFrequency * t);
+            position = (displacement + b * t) * decay;
+            velocity = (b - naturalFrequency * (displacement + b * t)) * decay;
+        } else {
+            float root = naturalFrequency * (float) Math.sqrt(springDampingRatio * springDampingRatio - 1f);
+            float r1 = -damping + root;
+            float r2 = -damping - root;
+            float c1 = (springVelocity - r2 * displacement) / (r1 - r2);
+            float c2 = displacement - c1;
+            float e1 = (float) Math.exp(r1 * t);
+            float e2 = (float) Math.exp(r2 * t);
+            position = c1 * e1 + c2 * e2;
+            velocity = c1 * r1 * e1 + c2 * r2 * e2;
+        }
+        if (Math.abs(position) < SETTLE_DISTANCE && Math.abs(velocity) < SETTLE_VELOCITY) {
+            value = to;
+            velocity = 0f;
+            return true;
+        }
+        value = to + position;
+        return false;
+    }
+
+    public interface Listener {
+        void onAnimationUpdate(float value);
+
+        default void onAnimationEnd() {
+        }
+    }
+}
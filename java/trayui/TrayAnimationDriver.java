@@ -0,0 +1,123 @@
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Frame clock shared by every tray of a {@link TrayController}. Callbacks posted to it are
+ * stepped in posting order from a single callback on the underlying clock, which is only
+ * registered while something is pending. The time spent stepping each frame is recorded.
+ *
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public class TrayAnimationDriver implements FrameClock, Choreographer.FrameCallback {
+    private static final int INITIAL_CAPACITY = 8;
+    private final FrameClock frameClock;
+    private Choreographer.FrameCallback[] pendingCallbacks = new Choreographer.FrameCallback[INITIAL_CAPACITY];
+    private Choreographer.FrameCallback[] runningCallbacks = new Choreographer.FrameCallback[INITIAL_CAPACITY];
+    private int pendingCount;
+    private int runningCount;
+    private int runningIndex;
+    private boolean posted;
+    private long frameCount;
+    private long lastFrameCostNanos;
+    private long maxFrameCostNanos;
+    private long totalFrameCostNanos;
+
+    public TrayAnimationDriver(FrameClock frameClock) {
+        this.frameClock = frameClock;
+    }
+
+    @Override
+    public void postFrameCallback(@NonNull Choreographer.FrameCallback frameCallback) {
+        for (int i = 0; i < pendingCount; i++) {
+            if (pendingCallbacks[i] == frameCallback)
+                return;
+        }
+        if (pendingCount == pendingCallbacks.length) {
+            Choreographer.FrameCallback[] callbacks = new Choreographer.FrameCallback[pendingCount * 2];
+            System.arraycopy(pendingCallbacks, 0, callbacks, 0, pendingCount);
+            pendingCallbacks = callbacks;
+        }
+        pendingCallbacks[pendingCount++] = frameCallback;
+        if (!posted) {
+            posted = true;
+            frameClock.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void removeFrameCallback(@NonNull Choreographer.FrameCallback frameCallback) {
+        for (int i = 0; i < pendingCount; i++) {
+            if (pendingCallbacks[i] == frameCallback) {
+                System.arraycopy(pendingCallbacks, i + 1, pendingCallbacks, i, pendingCount - i - 1);
+                pendingCallbacks[--pendingCount] = null;
+                break;
+            }
+        }
+        for (int i = runningIndex + 1; i < runningCount; i++) {
+            if (runningCallbacks[i] == frameCallback)
+                runningCallbacks[i] = null;
+        }
+        if (pendingCount == 0 && posted) {
+            posted = false;
+            frameClock.removeFrameCallback(this);
+        }
+    }
+
+    public boolean isIdle() {
+        return pendingCount == 0 && runningCount == 0;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        posted = false;
+        long startNanos = System.nanoTime();
+        Choreographer.FrameCallback[] callbacks = runningCallbacks;
+        runningCallbacks = pendingCallbacks;
+        pendingCallbacks = callbacks;
+        runningCount = pendingCount;
+        pendingCount = 0;
+        for (runningIndex = 0; runningIndex < runningCount; runningIndex++) {
+            Choreographer.FrameCallback callback = runningCallbacks[runningIndex];
+            if (callback != null) {
+                runningCallbacks[runningIndex] = null;
+                callback.doFrame(frameTimeNanos);
+            }
+        }
+        runningCount = 0;
+        runningIndex = 0;
+        if (pendingCount > 0 && !posted) {
+            posted = true;
+            frameClock.postFrameCallback(this);
+        }
+        lastFrameCostNanos = System.nanoTime() - startNanos;
+        maxFrameCostNanos = Math.max(maxFrameCostNanos, lastFrameCostNanos);
+        totalFrameCostNanos += lastFrameCostNanos;
+        frameCount++;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getLastFrameCostNanos() {
+        return lastFrameCostNanos;
+    }
+
+    public long getMaxFrameCostNanos() {
+        return maxFrameCostNanos;
+    }
+
+    public long getMeanFrameCostNanos() {
+        return frameCount > 0 ? totalFrameCostNanos / frameCount : 0;
+    }
+
+    public void resetFrameCost() {
+        frameCount = 0;
+        lastFrameCostNanos = 0;
+        maxFrameCostNanos = 0;
+        totalFrameCostNanos = 0;
+    }
+}
@@ -0,0 +1,192 @@
+import android.content.ComponentCallbacks2;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps lazily created tray content within a count and memory budget. Content of retracted trays
+ * is released least recently opened first whenever the budget is exceeded or memory is trimmed,
+ * and is created again by its {@link TrayContentHolder} on the next open.
+ *
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public class TrayContentCache {
+    public static final int UNLIMITED_COUNT = Integer.MAX_VALUE;
+    public static final long UNLIMITED_BYTES = Long.MAX_VALUE;
+    private final List<Entry> entries = new ArrayList<>();
+    private int maxCount = UNLIMITED_COUNT;
+    private long maxBytes = UNLIMITED_BYTES;
+    private int hitCount;
+    private int missCount;
+    private int evictionCount;
+
+    public void setBudget(int maxCount, long maxBytes) {
+        this.maxCount = maxCount;
+        this.maxBytes = maxBytes;
+        trimToBudget();
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    void add(TrayContentHolder holder) {
+        if (findEntry(holder) == null)
+            entries.add(new Entry(holder));
+    }
+
+    void remove(TrayContentHolder holder) {
+        Entry entry = findEntry(holder);
+        if (entry != null)
+            entries.remove(entry);
+    }
+
+    boolean canPrecreate() {
+        return getResidentCount() < maxCount;
+    }
+
+    /**
+     * Creates content ahead of a possible open, such as a drag start, without taking the tray
+     * out of the retracted set: a drag that never moves the tray leaves it evictable.
+     */
+    void onOpenIntent(TrayContentHolder holder) {
+        Entry entry = findEntry(holder);
+        if (entry != null && entry.retracted && !entry.counted) {
+            entry.counted = true;
+            entry.lastOpenTimeMillis = SystemClock.uptimeMillis();
+            countLookup(holder);
+        }
+        holder.ensureContent();
+        trimToBudget(holder);
+    }
+
+    void onOpen(TrayContentHolder holder) {
+        Entry entry = findEntry(holder);
+        if (entry == null) {
+            holder.ensureContent();
+            return;
+        }
+        if (entry.retracted) {
+            entry.retracted = false;
+            entry.lastOpenTimeMillis = SystemClock.uptimeMillis();
+            if (!entry.counted)
+                countLookup(holder);
+            entry.counted = true;
+        }
+        holder.ensureContent();
+        trimToBudget();
+    }
+
+    void onRetracted(TrayContentHolder holder) {
+        Entry entry = findEntry(holder);
+        if (entry != null) {
+            entry.retracted = true;
+            entry.counted = false;
+            trimToBudget();
+        }
+    }
+
+    private void countLookup(TrayContentHolder holder) {
+        if (holder.hasContent()) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+    }
+
+    /**
+     * Releases all retracted content on {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} and
+     * above, and the least recently opened half of it on milder signals.
+     */
+    public void onTrimMemory(int level) {
+        int retractedCount = 0;
+        for (Entry entry : entries) {
+            if (entry.retracted && entry.holder.hasContent())
+                retractedCount++;
+        }
+        int evict = level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW ? retractedCount : retractedCount / 2;
+        for (int i = 0; i < evict; i++)
+            evictLeastRecentlyOpened(null);
+    }
+
+    public void trimToBudget() {
+        trimToBudget(null);
+    }
+
+    /**
+     * @param kept retracted content that is about to open and must not be evicted, or {@code null}
+     */
+    private void trimToBudget(TrayContentHolder kept) {
+        while (getResidentCount() > maxCount || getResidentBytes() > maxBytes) {
+            if (!evictLeastRecentlyOpened(kept))
+                return;
+        }
+    }
+
+    public int getResidentCount() {
+        int count = 0;
+        for (Entry entry : entries) {
+            if (entry.holder.hasContent())
+                count++;
+        }
+        return count;
+    }
+
+    public long getResidentBytes() {
+        long bytes = 0;
+        for (Entry entry : entries)
+            bytes += entry.holder.estimateContentBytes();
+        return bytes;
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    public int getMissCount() {
+        return missCount;
+    }
+
+    public int getEvictionCount() {
+        return evictionCount;
+    }
+
+    private boolean evictLeastRecentlyOpened(TrayContentHolder kept) {
+        Entry victim = null;
+        for (Entry entry : entries) {
+            if (entry.retracted && entry.holder != kept && entry.holder.hasContent() && (victim == null || entry.lastOpenTimeMillis < victim.lastOpenTimeMillis))
+                victim = entry;
+        }
+        if (victim == null)
+            return false;
+        victim.holder.releaseContent();
+        evictionCount++;
+        return true;
+    }
+
+    private Entry findEntry(TrayContentHolder holder) {
+        for (Entry entry : entries) {
+            if (entry.holder == holder)
+                return entry;
+        }
+        return null;
+    }
+
+    private static final class Entry {
+        final TrayContentHolder holder;
+        long lastOpenTimeMillis;
+        boolean retracted = true;
+        boolean counted;
+
+        Entry(TrayContentHolder holder) {
+            this.holder = holder;
+        }
+    }
+}
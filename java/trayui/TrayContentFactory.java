@@ -0,0 +1,22 @@
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+
+/**
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public interface TrayContentFactory {
+    @NonNull
+    View createTrayContent(@NonNull ViewGroup parent);
+
+    /**
+     * @return approximate memory held by {@code content}, used for the {@link TrayContentCache}
+     * budget; defaults to one ARGB_8888 frame of its size
+     */
+    default long estimateContentBytes(@NonNull View content) {
+        return (long) content.getWidth() * content.getHeight() * 4;
+    }
+}
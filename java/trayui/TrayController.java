@@ -1,12 +1,14 @@
 import android.annotation.SuppressLint;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.ViewConfiguration;
 
 import androidx.annotation.NonNull;
 
 import java.util.EnumMap;
-import java.util.Map;
-import java.util.Objects;
+import java.util.IdentityHashMap;
 
 /**
  * @author : "Line'R"
@@ -16,35 +18,241 @@ import java.util.Objects;
 public class TrayController implements TrayUi.TrayPositionListener {
     private final TrayContainer trayContainer;
     private final GestureController gestureController;
-    private final EnumMap<UiMode, TrayUi> trayUiEnumMap;
-    private final EnumMap<UiMode, TrayPositionController> trayPositionControllerEnumMap;
+    private final TrayAnimationDriver animationDriver;
+    private final EnumMap<UiMode, TrayRecord> trayRecords;
+    private final IdentityHashMap<TrayUi, TrayRecord> trayRecordsByTrayUi;
+    private UiMode activeUiMode;
+    private final TrayContentCache trayContentCache = new TrayContentCache();
+    private boolean precreateTrayContentWhenIdle;
+    private boolean contentIdleHandlerAdded;
+    private final MessageQueue.IdleHandler contentIdleHandler = () -> {
+        TrayRecord trayRecord = getPendingContentRecord();
+        if (trayRecord != null && trayContentCache.canPrecreate())
+            trayRecord.contentHolder.ensureContent();
+        contentIdleHandlerAdded = getPendingContentRecord() != null && trayContentCache.canPrecreate();
+        return contentIdleHandlerAdded;
+    };
+    private boolean dragCoalescingEnabled;
+    private boolean dragResamplingEnabled;
+    private long touchPredictionLookaheadMillis;
+    private EarlyCapturePolicy earlyCapturePolicy;
+    @TrayUi.PositioningMode
+    private int positioningMode = TrayUi.PositioningMode.POSITIONING_LAYOUT;
+    private TrayUi.MotionLayerPolicy motionLayerPolicy;
+    private boolean snapshotDuringDrag;
 
-    @SuppressLint("ClickableViewAccessibility")
     public TrayController(TrayContainer trayContainer) {
+        this(trayContainer, new ChoreographerFrameClock());
+    }
+
+    @SuppressLint("ClickableViewAccessibility")
+    public TrayController(TrayContainer trayContainer, FrameClock frameClock) {
         this.trayContainer = trayContainer;
-        this.trayUiEnumMap = new EnumMap<>(UiMode.class);
-        this.trayPositionControllerEnumMap = new EnumMap<>(UiMode.class);
+        this.animationDriver = new TrayAnimationDriver(frameClock);
+        this.trayRecords = new EnumMap<>(UiMode.class);
+        this.trayRecordsByTrayUi = new IdentityHashMap<>();
         this.gestureController = new GestureController(trayContainer);
         this.gestureController.setUiMode(UiMode.MODE_NONE);
+        this.activeUiMode = UiMode.MODE_NONE;
+        this.gestureController.setDispatchMode(GestureController.DispatchMode.DISPATCH_ONCE);
         this.trayContainer.setOnInterceptTouchListener(motionEvent -> {
             gestureController.onTouchEvent(motionEvent);
             return false;
         });
         this.trayContainer.setOnTouchListener((v, event) -> gestureController.onTouchEvent(event));
+        this.trayContainer.addOnLayoutChangeListener((v, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> gestureController.invalidateTouchRegions());
     }
 
 
     public void attachTray(UiMode uiMode, View view, DragDirection dragDirection) {
+        if (trayRecords.containsKey(uiMode))
+            detachTray(uiMode);
         trayContainer.placeTray(view);
-        TrayUi trayUi = createTray(uiMode, view, dragDirection);
+        TrayUi trayUi = createTray(view, dragDirection);
         TrayPositionController positionController = createTrayPositionController(trayUi, dragDirection);
-        trayPositionControllerEnumMap.put(uiMode, positionController);
+        if (touchPredictionLookaheadMillis > 0)
+            positionController.setTouchPredictor(new TouchPredictor(touchPredictionLookaheadMillis, Views.dpToPx(24)));
         EdgeSwipeGestureRecognizer edgeSwipeGestureRecognizer = createRecognizer(positionController, dragDirection);
+        edgeSwipeGestureRecognizer.setTouchRegionProvider(positionController);
+        positionController.setOnTouchRegionChangedListener(gestureController::invalidateTouchRegions);
+        applyDragFrameStage(edgeSwipeGestureRecognizer);
+        edgeSwipeGestureRecognizer.setEarlyCapturePolicy(earlyCapturePolicy);
+        TrayRecord trayRecord = new TrayRecord(uiMode, view, trayUi, positionController, edgeSwipeGestureRecognizer);
+        trayRecords.put(uiMode, trayRecord);
+        trayRecordsByTrayUi.put(trayUi, trayRecord);
         gestureController.registerRecognizer(
                 uiMode,
                 edgeSwipeGestureRecognizer
         );
-        gestureController.setUiMode(UiMode.MODE_NONE);
+        switchUiMode(UiMode.MODE_NONE);
+    }
+
+    public void attachTray(UiMode uiMode, TrayContentFactory trayContentFactory, DragDirection dragDirection) {
+        attachTray(uiMode, trayContentFactory, dragDirection, null);
+    }
+
+    /**
+     * @param layoutParams layout of the tray in the container, sized as the real content would be;
+     *                     {@code null} for a tray filling the container
+     */
+    public void attachTray(UiMode uiMode, TrayContentFactory trayContentFactory, DragDirection dragDirection, ViewGroup.LayoutParams layoutParams) {
+        TrayContentHolder trayContentHolder = new TrayContentHolder(trayContainer.getContext(), trayContentFactory);
+        if (layoutParams != null)
+            trayContentHolder.setLayoutParams(layoutParams);
+        attachTray(uiMode, trayContentHolder, dragDirection);
+        trayContentCache.add(trayContentHolder);
+        if (precreateTrayContentWhenIdle)
+            addContentIdleHandler();
+    }
+
+    public boolean isTrayContentCreated(UiMode uiMode) {
+        TrayRecord trayRecord = getTrayRecord(uiMode);
+        return trayRecord.contentHolder == null || trayRecord.contentHolder.hasContent();
+    }
+
+    public void setPrecreateTrayContentWhenIdle(boolean precreateTrayContentWhenIdle) {
+        this.precreateTrayContentWhenIdle = precreateTrayContentWhenIdle;
+        if (precreateTrayContentWhenIdle) {
+            addContentIdleHandler();
+        } else if (contentIdleHandlerAdded) {
+            contentIdleHandlerAdded = false;
+            Looper.myQueue().removeIdleHandler(contentIdleHandler);
+        }
+    }
+
+    private void addContentIdleHandler() {
+        if (!contentIdleHandlerAdded && getPendingContentRecord() != null && trayContentCache.canPrecreate()) {
+            contentIdleHandlerAdded = true;
+            Looper.myQueue().addIdleHandler(contentIdleHandler);
+        }
+    }
+
+    private TrayRecord getPendingContentRecord() {
+        for (TrayRecord trayRecord : trayRecords.values()) {
+            if (trayRecord.contentHolder != null && !trayRecord.contentHolder.hasContent())
+                return trayRecord;
+        }
+        return null;
+    }
+
+    public void setTrayContentBudget(int maxCount, long maxBytes) {
+        trayContentCache.setBudget(maxCount, maxBytes);
+    }
+
+    public void onTrimMemory(int level) {
+        trayContentCache.onTrimMemory(level);
+    }
+
+    public int getTrayContentCacheHitCount() {
+        return trayContentCache.getHitCount();
+    }
+
+    public int getTrayContentCacheMissCount() {
+        return trayContentCache.getMissCount();
+    }
+
+    public int getTrayContentCacheEvictionCount() {
+        return trayContentCache.getEvictionCount();
+    }
+
+    public void detachTray(UiMode uiMode) {
+        TrayRecord trayRecord = getTrayRecord(uiMode);
+        if (trayRecord.contentHolder != null)
+            trayContentCache.remove(trayRecord.contentHolder);
+        trayRecords.remove(uiMode);
+        trayRecordsByTrayUi.remove(trayRecord.trayUi);
+        trayRecord.positionController.stop();
+        trayRecord.trayUi.removeTrayPositionListener(this);
+        trayRecord.trayUi.detach();
+        gestureController.unregisterRecognizer(uiMode, trayRecord.recognizer);
+        trayContainer.removeTray(trayRecord.view);
+        if (activeUiMode == uiMode)
+            switchUiMode(UiMode.MODE_NONE);
+    }
+
+    public boolean isTrayAttached(UiMode uiMode) {
+        return trayRecords.containsKey(uiMode);
+    }
+
+    public void setDragCoalescingEnabled(boolean dragCoalescingEnabled) {
+        this.dragCoalescingEnabled = dragCoalescingEnabled;
+        for (TrayRecord trayRecord : trayRecords.values())
+            applyDragFrameStage(trayRecord.recognizer);
+    }
+
+    public void setDragResamplingEnabled(boolean dragResamplingEnabled) {
+        this.dragResamplingEnabled = dragResamplingEnabled;
+        for (TrayRecord trayRecord : trayRecords.values())
+            applyDragFrameStage(trayRecord.recognizer);
+    }
+
+    private void applyDragFrameStage(EdgeSwipeGestureRecognizer recognizer) {
+        recognizer.setShouldResampleDrags(dragResamplingEnabled);
+        recognizer.setFrameClock(dragCoalescingEnabled || dragResamplingEnabled ? animationDriver : null);
+    }
+
+    public TrayAnimationDriver getAnimationDriver() {
+        return animationDriver;
+    }
+
+    public void setEarlyCaptureEnabled(boolean earlyCaptureEnabled) {
+        if (earlyCaptureEnabled) {
+            ViewConfiguration viewConfiguration = ViewConfiguration.get(trayContainer.getContext());
+            setEarlyCapturePolicy(new EarlyCapturePolicy(
+                    viewConfiguration.getScaledTouchSlop() / 2f,
+                    viewConfiguration.getScaledMinimumFlingVelocity() * 2f,
+                    .9f,
+                    2
+            ));
+        } else {
+            setEarlyCapturePolicy(null);
+        }
+    }
+
+    public void setEarlyCapturePolicy(EarlyCapturePolicy earlyCapturePolicy) {
+        this.earlyCapturePolicy = earlyCapturePolicy;
+        for (TrayRecord trayRecord : trayRecords.values())
+            trayRecord.recognizer.setEarlyCapturePolicy(earlyCapturePolicy);
+    }
+
+    public long getLastTimeToCaptureMillis(UiMode uiMode) {
+        return getTrayRecord(uiMode).recognizer.getLastTimeToCaptureMillis();
+    }
+
+    public boolean wasLastCaptureEarly(UiMode uiMode) {
+        return getTrayRecord(uiMode).recognizer.wasLastCaptureEarly();
+    }
+
+    public void setPositioningMode(@TrayUi.PositioningMode int positioningMode) {
+        this.positioningMode = positioningMode;
+        for (TrayRecord trayRecord : trayRecords.values())
+            trayRecord.trayUi.setPositioningMode(positioningMode);
+    }
+
+    public void setMotionLayerPolicy(TrayUi.MotionLayerPolicy motionLayerPolicy) {
+        this.motionLayerPolicy = motionLayerPolicy;
+        for (TrayRecord trayRecord : trayRecords.values())
+            trayRecord.trayUi.setMotionLayerPolicy(motionLayerPolicy);
+    }
+
+    public void setSnapshotDuringDrag(boolean snapshotDuringDrag) {
+        this.snapshotDuringDrag = snapshotDuringDrag;
+        for (TrayRecord trayRecord : trayRecords.values())
+            trayRecord.trayUi.setSnapshotDuringDrag(snapshotDuringDrag);
+    }
+
+    public void setTouchPredictionLookahead(long lookaheadMillis) {
+        this.touchPredictionLookaheadMillis = lookaheadMillis;
+        for (TrayRecord trayRecord : trayRecords.values()) {
+            TrayPositionController positionController = trayRecord.positionController;
+            if (lookaheadMillis <= 0) {
+                positionController.setTouchPredictor(null);
+            } else if (positionController.getTouchPredictor() != null) {
+                positionController.getTouchPredictor().setLookaheadMillis(lookaheadMillis);
+            } else {
+                positionController.setTouchPredictor(new TouchPredictor(lookaheadMillis, Views.dpToPx(24)));
+            }
+        }
     }
 
     public void openTray(UiMode uiMode) {
@@ -86,6 +294,18 @@ public class TrayController implements TrayUi.TrayPositionListener {
         return getTrayControllerFor(uiMode).isTrayClosed();
     }
 
+    public void setTrayDetents(UiMode uiMode, float... detents) {
+        getTrayControllerFor(uiMode).setDetents(detents);
+    }
+
+    public int getCurrentDetent(UiMode uiMode) {
+        return getTrayControllerFor(uiMode).getCurrentDetent();
+    }
+
+    public void setLockedOpen(UiMode uiMode, boolean lockedOpen) {
+        getTrayControllerFor(uiMode).setLockedOpen(lockedOpen);
+    }
+
     public boolean isTrayBeingDragged(UiMode uiMode){
         return getTrayControllerFor(uiMode).isTrayBeingDragged();
     }
@@ -94,25 +314,41 @@ public class TrayController implements TrayUi.TrayPositionListener {
         getTrayControllerFor(uiMode).addTrayPositionListener(trayPositionListener);
     }
 
+    public void addTrayPositionListener(UiMode uiMode, TrayUi.TrayPositionListener trayPositionListener, float progressEpsilon){
+        getTrayControllerFor(uiMode).addTrayPositionListener(trayPositionListener, progressEpsilon);
+    }
+
+    public void removeTrayPositionListener(UiMode uiMode, TrayUi.TrayPositionListener trayPositionListener){
+        getTrayControllerFor(uiMode).removeTrayPositionListener(trayPositionListener);
+    }
+
     @NonNull
     public TrayPositionController getTrayControllerFor(UiMode uiMode) {
-        if (trayPositionControllerEnumMap.containsKey(uiMode)) {
-            TrayPositionController positionController = trayPositionControllerEnumMap.get(uiMode);
-            if (positionController != null) {
-                return positionController;
-            } else {
-                throw new RuntimeException(uiMode + " tray not attached to homeView!");
-            }
-        } else {
+        return getTrayRecord(uiMode).positionController;
+    }
+
+    @NonNull
+    private TrayRecord getTrayRecord(UiMode uiMode) {
+        TrayRecord trayRecord = trayRecords.get(uiMode);
+        if (trayRecord == null)
             throw new RuntimeException(uiMode + " tray not attached to homeView!");
+        return trayRecord;
+    }
+
+    private void switchUiMode(UiMode uiMode) {
+        if (activeUiMode != uiMode) {
+            activeUiMode = uiMode;
+            gestureController.setUiMode(uiMode);
         }
     }
 
-    private TrayUi createTray(UiMode uiMode, View view, DragDirection dragDirection) {
+    private TrayUi createTray(View view, DragDirection dragDirection) {
         TrayUi trayUi = TrayUi.attach(view, dragDirection);
+        trayUi.setPositioningMode(positioningMode);
+        trayUi.setMotionLayerPolicy(motionLayerPolicy);
+        trayUi.setSnapshotDuringDrag(snapshotDuringDrag);
         trayUi.setPosition(TrayUi.TrayPosition.POSITION_RETRACTED, 0.0f);
-        trayUi.addTrayPositionListener(this);
-        trayUiEnumMap.put(uiMode, trayUi);
+        trayUi.addTrayPositionListener(this, Float.POSITIVE_INFINITY);
         return trayUi;
     }
 
@@ -122,7 +358,8 @@ public class TrayController implements TrayUi.TrayPositionListener {
                 ViewConfiguration.get(trayContainer.getContext()).getScaledMinimumFlingVelocity(),
                 Views.dpToPx(8),
                 dragDirection,
-                1f
+                1f,
+                animationDriver
         );
     }
 
@@ -151,35 +388,76 @@ public class TrayController implements TrayUi.TrayPositionListener {
 
     @Override
     public void onTrayFullyOpen(TrayUi trayUi) {
-        if (trayUiEnumMap.containsValue(trayUi)) {
-            UiMode uiMode = getKeysByValue(trayUiEnumMap, trayUi);
-            if (uiMode != null) {
-                gestureController.setUiMode(uiMode);
-            }
+        gestureController.invalidateTouchRegions();
+        TrayRecord trayRecord = trayRecordsByTrayUi.get(trayUi);
+        if (trayRecord != null) {
+            trayRecord.engaged = true;
+            switchUiMode(trayRecord.uiMode);
         }
     }
 
     @Override
     public void onTrayFullyRetracted(TrayUi trayUi) {
-        gestureController.setUiMode(UiMode.MODE_NONE);
+        gestureController.invalidateTouchRegions();
+        TrayRecord trayRecord = trayRecordsByTrayUi.get(trayUi);
+        if (trayRecord != null) {
+            trayRecord.engaged = false;
+            if (trayRecord.contentHolder != null)
+                trayContentCache.onRetracted(trayRecord.contentHolder);
+        }
+        switchUiMode(UiMode.MODE_NONE);
     }
 
     @Override
     public void onTrayPartiallyOpen(TrayUi trayUi, float progress) {
-        if (trayUiEnumMap.containsValue(trayUi)) {
-            UiMode uiMode = getKeysByValue(trayUiEnumMap, trayUi);
-            if (uiMode != null) {
-                gestureController.setUiMode(uiMode);
-            }
+        gestureController.invalidateTouchRegions();
+        TrayRecord trayRecord = trayRecordsByTrayUi.get(trayUi);
+        if (trayRecord != null) {
+            trayRecord.engaged = true;
+            switchUiMode(trayRecord.uiMode);
         }
     }
 
-    public static <T, E> T getKeysByValue(Map<T, E> map, E value) {
-        for (Map.Entry<T, E> entry : map.entrySet()) {
-            if (Objects.equals(value, entry.getValue())) {
-                return entry.getKey();
-            }
+    @Override
+    public void onBeforeTrayOpen(TrayUi trayUi) {
+        gestureController.invalidateTouchRegions();
+        TrayRecord trayRecord = trayRecordsByTrayUi.get(trayUi);
+        if (trayRecord != null && trayRecord.contentHolder != null)
+            trayContentCache.onOpen(trayRecord.contentHolder);
+    }
+
+    @Override
+    public void onTrayGeometryChanged(TrayUi trayUi) {
+        gestureController.invalidateTouchRegions();
+    }
+
+    @Override
+    public void onTrayDragStart(TrayUi trayUi) {
+        TrayRecord trayRecord = trayRecordsByTrayUi.get(trayUi);
+        if (trayRecord != null && trayRecord.contentHolder != null)
+            trayContentCache.onOpenIntent(trayRecord.contentHolder);
+    }
+
+    public boolean isTrayEngaged(UiMode uiMode) {
+        return getTrayRecord(uiMode).engaged;
+    }
+
+    private static final class TrayRecord {
+        final UiMode uiMode;
+        final View view;
+        final TrayUi trayUi;
+        final TrayPositionController positionController;
+        final EdgeSwipeGestureRecognizer recognizer;
+        final TrayContentHolder contentHolder;
+        boolean engaged;
+
+        TrayRecord(UiMode uiMode, View view, TrayUi trayUi, TrayPositionController positionController, EdgeSwipeGestureRecognizer recognizer) {
+            this.uiMode = uiMode;
+            this.view = view;
+            this.trayUi = trayUi;
+            this.positionController = positionController;
+            this.recognizer = recognizer;
+            this.contentHolder = view instanceof TrayContentHolder ? (TrayContentHolder) view : null;
         }
-        return null;
     }
 }
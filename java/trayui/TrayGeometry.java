@@ -0,0 +1,69 @@
+/**
+ * Immutable snapshot of a tray's sizes and position bounds along its drag axis. {@link TrayUi}
+ * rebuilds it on layout changes, so position queries on the touch path never reach the views.
+ *
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public final class TrayGeometry {
+    private final DragDirection dragDirection;
+    private final int size;
+    private final int parentSize;
+    private final float openPosition;
+    private final float retractedPosition;
+    private final float minPosition;
+    private final float maxPosition;
+    private final float leadingEdgeOffset;
+
+    public TrayGeometry(DragDirection dragDirection, int size, int parentSize) {
+        this.dragDirection = dragDirection;
+        this.size = size;
+        this.parentSize = parentSize;
+        this.openPosition = dragDirection.getOpenPosition(size);
+        this.retractedPosition = dragDirection.getRetractedPosition(size);
+        this.minPosition = dragDirection.getMinPosition(size);
+        this.maxPosition = dragDirection.getMaxPosition(size);
+        this.leadingEdgeOffset = dragDirection.getLeadingEdge(size, 0f);
+    }
+
+    public boolean matches(int size, int parentSize) {
+        return this.size == size && this.parentSize == parentSize;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getParentSize() {
+        return parentSize;
+    }
+
+    public float getOpenPosition() {
+        return openPosition;
+    }
+
+    public float getRetractedPosition() {
+        return retractedPosition;
+    }
+
+    public float getMinPosition() {
+        return minPosition;
+    }
+
+    public float getMaxPosition() {
+        return maxPosition;
+    }
+
+    public float getLeadingEdge(float position) {
+        return position + leadingEdgeOffset;
+    }
+
+    public float getDragProgress(float position) {
+        return dragDirection.getDragProgress(size, position);
+    }
+
+    public float getPositionForProgress(float progress) {
+        return dragDirection.getPositionForProgress(size, progress);
+    }
+}
@@ -1,9 +1,8 @@
-import android.animation.PropertyValuesHolder;
-import android.animation.TimeInterpolator;
-import android.animation.ValueAnimator;
 import android.annotation.IntDef;
+import android.graphics.RectF;
 import android.view.MotionEvent;
-import android.view.animation.AccelerateDecelerateInterpolator;
+
+import androidx.annotation.NonNull;
 
 
 import java.lang.annotation.Retention;
@@ -14,19 +13,34 @@ import java.lang.annotation.RetentionPolicy;
  * @mailto : serinity320@mail.com
  * @created : 16.12.2021, четверг
  **/
-public class TrayPositionController implements DragRecognizerClient {
+public class TrayPositionController implements DragRecognizerClient, TouchRegionProvider {
     private static final long TRAY_ZOOP_TO_FINGER_DURATION = 300;
+    private static final long TRAY_ANIMATION_DURATION = 300;
+    private static final float DEFAULT_SPRING_STIFFNESS = 1500f;
+    private static final float DEFAULT_SPRING_DAMPING_RATIO = 1f;
+    private static final float FLING_DECAY_RATE = 4.2f;
     private final DragDirection dragDirection;
     private boolean dragging;
     private boolean lockedOpen;
+    private OnTouchRegionChangedListener onTouchRegionChangedListener;
     private final int fingerFudgeWidth;
     private final float minFlingVelocity;
     private final RelativeTrayPositionAnimator scootUnderFingerAnimator;
-    private Animate trayAnimator;
+    private final TrayAnimation trayAnimator;
     @TrayStatus
     private int trayStatus;
+    private int animationTargetDetent;
     private final TrayUi trayUi;
     private final float watchFaceDragHeightThreshold;
+    private TouchPredictor touchPredictor;
+    private float predictionOffset;
+    @AnimationMode
+    private int animationMode = AnimationMode.ANIMATION_EASE;
+    private float springStiffness = DEFAULT_SPRING_STIFFNESS;
+    private float springDampingRatio = DEFAULT_SPRING_DAMPING_RATIO;
+    private float caughtVelocity;
+    private boolean draggedSinceStart;
+    private float flingFriction = 1f;
 
     @IntDef({TrayStatus.STATUS_OPEN, STATUS_RETRACTED})
     @Retention(RetentionPolicy.SOURCE)
@@ -35,75 +49,137 @@ public class TrayPositionController implements DragRecognizerClient {
         int STATUS_RETRACTED = 1;
     }
 
+    @IntDef({AnimationMode.ANIMATION_EASE, AnimationMode.ANIMATION_SPRING})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface AnimationMode {
+        int ANIMATION_EASE = 0;
+        int ANIMATION_SPRING = 1;
+    }
+
     public TrayPositionController(
             TrayUi trayUi,
             float minFlingVelocity,
             int fingerFudgeWidth,
             DragDirection dragDirection,
             float watchFaceDragHeightThreshold
+    ) {
+        this(trayUi, minFlingVelocity, fingerFudgeWidth, dragDirection, watchFaceDragHeightThreshold, new ChoreographerFrameClock());
+    }
+
+    public TrayPositionController(
+            TrayUi trayUi,
+            float minFlingVelocity,
+            int fingerFudgeWidth,
+            DragDirection dragDirection,
+            float watchFaceDragHeightThreshold,
+            FrameClock frameClock
     ) {
         this.trayStatus = STATUS_RETRACTED;
         this.dragging = false;
         this.trayUi = trayUi;
         this.minFlingVelocity = minFlingVelocity;
         this.fingerFudgeWidth = fingerFudgeWidth;
-        this.scootUnderFingerAnimator = new RelativeTrayPositionAnimator(trayUi);
+        this.trayAnimator = new TrayAnimation(frameClock, new TrayAnimation.Listener() {
+            @Override
+            public void onAnimationUpdate(float value) {
+                trayUi.setPosition(TrayPosition.POSITION_ABSOLUTE, Math2.clamp(value, trayUi.getMinPosition(), trayUi.getMaxPosition()));
+            }
+
+            @Override
+            public void onAnimationEnd() {
+                snapToDetent(animationTargetDetent);
+            }
+        });
+        this.scootUnderFingerAnimator = new RelativeTrayPositionAnimator(trayUi, frameClock);
         this.dragDirection = dragDirection;
         this.watchFaceDragHeightThreshold = watchFaceDragHeightThreshold;
     }
 
-    private void dragTrayBy(float x, float y) {
-        float position = trayUi.getPosition();
+    private void dragTrayBy(float x, float y, float prediction) {
+        draggedSinceStart = true;
+        float position = trayUi.getPosition() - predictionOffset;
         float dragDelta = dragDirection.applyDragDelta(position, x, y);
         float clamp = Math2.clamp(dragDelta, trayUi.getMinPosition(), trayUi.getMaxPosition());
-        trayUi.setPosition(TrayPosition.POSITION_ABSOLUTE, clamp);
+        float predicted = Math2.clamp(clamp + prediction, trayUi.getMinPosition(), trayUi.getMaxPosition());
+        predictionOffset = predicted - clamp;
+        trayUi.setPosition(TrayPosition.POSITION_ABSOLUTE, predicted);
     }
 
-    private void snapToStablePosition(float velocityX, float velocityY) {
-        if (dragDirection.isVelocityEnoughForFling(velocityX, velocityY, minFlingVelocity)) {
-            trayStatus = dragDirection.isVelocityInOpenDirection(velocityX, velocityY) ? STATUS_OPEN : STATUS_RETRACTED;
+    private void snapToStablePosition(float velocity) {
+        float openProgress = trayUi.getTrayOpenProgress();
+        int detent;
+        if (dragDirection.isAxisVelocityEnoughForFling(velocity, minFlingVelocity)) {
+            boolean opening = dragDirection.isAxisVelocityInOpenDirection(velocity);
+            float restingPosition = trayUi.getPosition() + velocity / (FLING_DECAY_RATE * flingFriction);
+            detent = trayUi.findNearestDetent(trayUi.getProgressAt(restingPosition));
+            int nextDetent = trayUi.findNextDetent(openProgress, opening);
+            if (opening ? detent < nextDetent : detent > nextDetent)
+                detent = nextDetent;
         } else {
             if (isTrayAnimating())
                 return;
-            float openProgress = trayUi.getTrayOpenProgress();
-            switch (trayStatus) {
-                case STATUS_OPEN:
-                    trayStatus = openProgress <= .5f ? STATUS_RETRACTED : STATUS_OPEN;
-                    break;
-                case STATUS_RETRACTED:
-                    trayStatus = openProgress >= .5f ? STATUS_OPEN : STATUS_RETRACTED;
-                    break;
-            }
+            detent = trayUi.findNearestDetent(openProgress);
         }
-        animateToState(trayStatus);
+        animateToDetent(detent, velocity);
     }
 
     @Override
     public void onDragStart(float startX, float startY) {
         dragging = true;
+        draggedSinceStart = false;
+        caughtVelocity = trayAnimator.getVelocity();
+        boolean caught = trayAnimator.isRunning();
+        trayAnimator.cancel();
+        predictionOffset = 0f;
+        if (touchPredictor != null)
+            touchPredictor.reset();
         scootUnderFingerAnimator.cancel();
+        trayUi.dispatchDragStart();
+        trayUi.beginMotion();
+        if (caught)
+            return;
         float distanceToFinger = dragDirection.getDistanceToFinger(startX, startY, fingerFudgeWidth, trayUi.getLeadingEdge());
         if (distanceToFinger > 0f) {
-            scootUnderFingerAnimator.start(distanceToFinger, TRAY_ZOOP_TO_FINGER_DURATION, new AccelerateDecelerateInterpolator());
+            scootUnderFingerAnimator.start(distanceToFinger, TRAY_ZOOP_TO_FINGER_DURATION);
         }
     }
 
     @Override
     public void onDrag(float startX, float startY, float endX, float endY) {
         if (dragging)
-            dragTrayBy(endX, endY);
+            dragTrayBy(endX, endY, 0f);
+    }
+
+    @Override
+    public void onDrag(float x, float y, float dX, float dY, long eventTimeMillis, VelocityProvider velocityProvider) {
+        if (!dragging)
+            return;
+        if (touchPredictor == null) {
+            dragTrayBy(dX, dY, 0f);
+            return;
+        }
+        float velocity = velocityProvider != null
+                ? dragDirection.getDragVelocity(velocityProvider.getXVelocity(), velocityProvider.getYVelocity())
+                : Float.NaN;
+        dragTrayBy(dX, dY, touchPredictor.predict(eventTimeMillis, dragDirection.getPositionAlongDragAxis(x, y), velocity));
     }
 
     @Override
     public void onDragEnd(float startX, float startY, float endX, float endY, boolean cancelAction) {
         if (dragging) {
             endDrag();
-            snapToStablePosition(endX, endY);
+            float velocity = dragDirection.getDragVelocity(endX, endY);
+            if (!draggedSinceStart && caughtVelocity != 0f)
+                velocity = caughtVelocity;
+            snapToStablePosition(velocity);
+            updateMotionState();
         }
     }
 
     @Override
     public boolean validateDrag(float x, float y, float f3, float f4, float f5, float f6, boolean z) {
+        if (z && isTrayAnimating())
+            return dragDirection.isPointWithinLeadingEdge(x, y, fingerFudgeWidth, trayUi.getLeadingEdge());
         if (trayStatus == TrayStatus.STATUS_OPEN) {
             return ((trayUi.getPositionMode() == TrayUi.TrayPosition.POSITION_ABSOLUTE) || (dragDirection.isVelocityInCloseDirection(f5 - x, f6 - y) && !lockedOpen)) && dragDirection.isPointWithinLeadingEdge(x, y, fingerFudgeWidth, trayUi.getLeadingEdge());
         } else if (trayStatus == STATUS_RETRACTED) {
@@ -127,10 +203,39 @@ public class TrayPositionController implements DragRecognizerClient {
         return RecognizeResult.RESULT_WAIT;
     }
 
+    @Override
+    public boolean getTouchRegion(@NonNull RectF outRegion) {
+        if (isTrayAnimating() || trayUi.getPositionMode() == TrayPosition.POSITION_ABSOLUTE)
+            return false;
+        if (trayStatus == STATUS_OPEN) {
+            if (lockedOpen) {
+                // An inverted infinite rect rejects every point, unlike setEmpty() which keeps (0, 0).
+                outRegion.set(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+            } else {
+                dragDirection.getLeadingEdgeRegion(fingerFudgeWidth, trayUi.getLeadingEdge(), outRegion);
+            }
+        } else {
+            dragDirection.getDragStartRegion(
+                    ((float) trayUi.getTrayParentSizeAlongDragAxis()) * watchFaceDragHeightThreshold,
+                    trayUi.getLeadingEdge(),
+                    trayUi.getMaxPosition(),
+                    outRegion);
+        }
+        return true;
+    }
+
     public void addTrayPositionListener(TrayUi.TrayPositionListener trayPositionListener) {
         trayUi.addTrayPositionListener(trayPositionListener);
     }
 
+    public void addTrayPositionListener(TrayUi.TrayPositionListener trayPositionListener, float progressEpsilon) {
+        trayUi.addTrayPositionListener(trayPositionListener, progressEpsilon);
+    }
+
+    public void removeTrayPositionListener(TrayUi.TrayPositionListener trayPositionListener) {
+        trayUi.removeTrayPositionListener(trayPositionListener);
+    }
+
     public boolean isTrayBeingDragged() {
         return dragging;
     }
@@ -144,7 +249,7 @@ public class TrayPositionController implements DragRecognizerClient {
     }
 
     public boolean isTrayAnimating() {
-        return trayAnimator != null && trayAnimator.isStarted();
+        return trayAnimator.isRunning();
     }
 
     public void closeTray(boolean smooth) {
@@ -165,78 +270,131 @@ public class TrayPositionController implements DragRecognizerClient {
     }
 
     public void snapToState(@TrayStatus int status) {
-        trayStatus = status;
-        trayUi.setPosition(status == STATUS_OPEN ? TrayPosition.POSITION_OPEN : TrayPosition.POSITION_RETRACTED, 0.0f);
+        snapToDetent(status == STATUS_OPEN ? trayUi.getDetentCount() - 1 : 0);
     }
 
-
-    public void animateToState(@TrayStatus int status) {
-        endDrag();
+    public void snapToDetent(int index) {
+        trayAnimator.cancel();
+        trayStatus = index == 0 ? STATUS_RETRACTED : STATUS_OPEN;
         @TrayPosition
-        int trayPosition = status == STATUS_OPEN ? TrayPosition.POSITION_OPEN : TrayPosition.POSITION_RETRACTED;
-        trayAnimator = new Animate.Builder(new Animate.Callback() {
-            @Override
-            public void onUpdate(ValueAnimator animator) {
-                trayUi.setPosition(TrayPosition.POSITION_ABSOLUTE, (Float) animator.getAnimatedValue("trayPosition"));
-            }
+        int trayPosition = trayUi.getDetentPositionMode(index);
+        trayUi.setPosition(trayPosition, trayPosition == TrayPosition.POSITION_ABSOLUTE ? trayUi.getDetentPosition(index) : 0.0f);
+        updateMotionState();
+    }
 
-            @Override
-            public void onStart() {
+    public void setDetents(float... detents) {
+        trayUi.setDetents(detents);
+    }
 
-            }
+    public int getCurrentDetent() {
+        return trayUi.getCurrentDetent();
+    }
 
-            @Override
-            public void onFinish() {
-                trayStatus = status;
-                trayUi.setPosition(trayPosition, 0.0f);
-            }
-        })
-                .widthDuration(300)
-                .withInterpolator(new AccelerateDecelerateInterpolator())
-                .withValues(PropertyValuesHolder.ofFloat("trayPosition", trayUi.getPosition(), trayUi.getAbsolutePosition(trayPosition)))
-                .build();
-        if (trayPosition != trayUi.getPositionMode()) {
-            trayAnimator.stop();
+    public void setFlingFriction(float flingFriction) {
+        this.flingFriction = flingFriction;
+    }
+
+
+    public void setAnimationMode(@AnimationMode int animationMode) {
+        this.animationMode = animationMode;
+    }
+
+    public void setSpringParameters(float stiffness, float dampingRatio) {
+        this.springStiffness = stiffness;
+        this.springDampingRatio = dampingRatio;
+    }
+
+    public void animateToState(@TrayStatus int status) {
+        animateToDetent(status == STATUS_OPEN ? trayUi.getDetentCount() - 1 : 0);
+    }
+
+    public void animateToDetent(int index) {
+        animateToDetent(index, trayAnimator.getVelocity());
+    }
+
+    private void animateToDetent(int index, float velocity) {
+        endDrag();
+        trayStatus = index == 0 ? STATUS_RETRACTED : STATUS_OPEN;
+        if (trayAnimator.isRunning() || trayUi.getDetentPositionMode(index) != trayUi.getPositionMode() || trayUi.getCurrentDetent() != index) {
             scootUnderFingerAnimator.cancel();
-            if (!trayAnimator.isRunning()) {
-                trayAnimator.start();
+            animationTargetDetent = index;
+            float target = trayUi.getDetentPosition(index);
+            if (animationMode == AnimationMode.ANIMATION_SPRING) {
+                trayAnimator.startSpring(trayUi.getPosition(), target, velocity, springStiffness, springDampingRatio);
             } else {
-                snapToState(status);
+                trayAnimator.start(trayUi.getPosition(), target, velocity, TRAY_ANIMATION_DURATION);
             }
         }
+        updateMotionState();
+    }
+
+    public void stop() {
+        trayAnimator.cancel();
+        endDrag();
+        updateMotionState();
+    }
+
+    private void updateMotionState() {
+        if (dragging || trayAnimator.isRunning() || scootUnderFingerAnimator.isRunning()) {
+            trayUi.beginMotion();
+        } else {
+            trayUi.endMotion();
+        }
     }
 
     private void endDrag() {
         dragging = false;
+        predictionOffset = 0f;
         scootUnderFingerAnimator.cancel();
     }
 
     public void setLockedOpen(boolean lockedOpen) {
+        if (this.lockedOpen == lockedOpen)
+            return;
         this.lockedOpen = lockedOpen;
+        if (onTouchRegionChangedListener != null)
+            onTouchRegionChangedListener.onTouchRegionChanged();
     }
 
+    public void setOnTouchRegionChangedListener(OnTouchRegionChangedListener onTouchRegionChangedListener) {
+        this.onTouchRegionChangedListener = onTouchRegionChangedListener;
+    }
 
+    public void setTouchPredictor(TouchPredictor touchPredictor) {
+        this.touchPredictor = touchPredictor;
+    }
 
-    public static class RelativeTrayPositionAnimator extends SimpleFloatAnimator {
+    public TouchPredictor getTouchPredictor() {
+        return touchPredictor;
+    }
+
+
+
+    public static class RelativeTrayPositionAnimator implements TrayAnimation.Listener {
         private float prevValue = 0.0f;
         private final TrayUi trayUi;
+        private final TrayAnimation animation;
 
-        public RelativeTrayPositionAnimator(TrayUi trayUi) {
+        public RelativeTrayPositionAnimator(TrayUi trayUi, FrameClock frameClock) {
             this.trayUi = trayUi;
+            this.animation = new TrayAnimation(frameClock, this);
         }
 
-        @Override
-        public void start(float from, float to, long duration, TimeInterpolator timeInterpolator) {
-            throw new UnsupportedOperationException("Call start(delta) instead.");
+        public void start(float delta, long duration) {
+            this.prevValue = 0.0f;
+            animation.start(0.0f, delta, duration);
         }
 
-        public void start(float f, long j, TimeInterpolator timeInterpolator) {
-            this.prevValue = 0.0f;
-            super.start(0.0f, f, j, timeInterpolator);
+        public void cancel() {
+            animation.cancel();
+        }
+
+        public boolean isRunning() {
+            return animation.isRunning();
         }
 
         @Override
-        protected void onUpdate(float value) {
+        public void onAnimationUpdate(float value) {
             this.trayUi.incrementPosition(value - this.prevValue);
             this.prevValue = value;
         }
@@ -0,0 +1,44 @@
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.view.View;
+
+/**
+ * Records a tray view's drawing into a {@link Picture} that is kept and re-recorded in place for
+ * later captures. Bitmaps in the content are referenced rather than copied, so hardware bitmaps
+ * are recorded as well and snapshotting a drag allocates no pixel buffer.
+ *
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+class TraySnapshot {
+    private Picture picture;
+
+    /**
+     * @return the recorded drawing, or {@code null} if the view has no size or could not be
+     * recorded, in which case it should be drawn live
+     */
+    Picture capture(View view) {
+        int width = view.getWidth();
+        int height = view.getHeight();
+        if (width <= 0 || height <= 0)
+            return null;
+        if (picture == null)
+            picture = new Picture();
+        Canvas canvas = picture.beginRecording(width, height);
+        try {
+            canvas.translate(-view.getScrollX(), -view.getScrollY());
+            view.draw(canvas);
+        } catch (RuntimeException e) {
+            picture.endRecording();
+            picture = null;
+            return null;
+        }
+        picture.endRecording();
+        return picture;
+    }
+
+    void release() {
+        picture = null;
+    }
+}
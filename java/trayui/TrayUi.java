@@ -1,12 +1,14 @@
 import android.annotation.IntDef;
+import android.graphics.Picture;
 import android.view.View;
 import android.view.ViewGroup;
 
+import androidx.annotation.NonNull;
+
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * @author : "Line'R"
@@ -14,20 +16,43 @@ import java.util.List;
  * @created : 16.12.2021, четверг
  **/
 public class TrayUi implements View.OnLayoutChangeListener {
+    private static final float[] DEFAULT_DETENTS = {0f, 1f};
+    private static final float DETENT_EPSILON = .001f;
+    private static final ListenerRecord[] NO_LISTENERS = new ListenerRecord[0];
     @TrayPosition
     private int trayPosition;
     private float position;
     private final DragDirection dragDirection;
     private final View view;
-    private final List<TrayPositionListener> listeners = new ArrayList<>();
+    private ListenerRecord[] listeners = NO_LISTENERS;
+    private float[] detents = DEFAULT_DETENTS;
+    private TrayGeometry geometry;
+    @PositioningMode
+    private int positioningMode = PositioningMode.POSITIONING_LAYOUT;
+    private MotionLayerPolicy motionLayerPolicy;
+    private boolean inMotion;
+    private boolean motionLayerPromoted;
+    private boolean snapshotDuringDrag;
+    private TraySnapshot traySnapshot;
+    private boolean snapshotActive;
 
 
     public static TrayUi attach(View view, DragDirection dragDirection) {
         TrayUi trayUi = new TrayUi(view, dragDirection);
         view.addOnLayoutChangeListener(trayUi);
+        if (view.getParent() instanceof View)
+            ((View) view.getParent()).addOnLayoutChangeListener(trayUi);
+        trayUi.updateGeometry();
         return trayUi;
     }
 
+    public void detach() {
+        setSnapshotDuringDrag(false);
+        view.removeOnLayoutChangeListener(this);
+        if (view.getParent() instanceof View)
+            ((View) view.getParent()).removeOnLayoutChangeListener(this);
+    }
+
     private TrayUi(View view, DragDirection dragDirection) {
         this.view = view;
         this.dragDirection = dragDirection;
@@ -35,47 +60,299 @@ public class TrayUi implements View.OnLayoutChangeListener {
 
     public void setPosition(@TrayPosition int trayPosition, float position){
         int previousTrayPosition = this.trayPosition;
+        float previousPosition = this.position;
         this.trayPosition = trayPosition;
         this.position = position;
         applyPosition();
-        for(TrayPositionListener listener:listeners){
-            if(previousTrayPosition == POSITION_RETRACTED && trayPosition != POSITION_RETRACTED) {
-                listener.onBeforeTrayOpen(this);
-            } else if(trayPosition == POSITION_OPEN){
-                listener.onTrayFullyOpen(this);
-            } else if(trayPosition == POSITION_RETRACTED){
-                listener.onTrayFullyRetracted(this);
-            } else if(trayPosition == POSITION_ABSOLUTE){
-                listener.onTrayPartiallyOpen(this, getTrayOpenProgress());
+        if (previousTrayPosition == trayPosition && (trayPosition != POSITION_ABSOLUTE || previousPosition == position))
+            return;
+        ListenerRecord[] records = listeners;
+        if (previousTrayPosition == POSITION_RETRACTED && trayPosition != POSITION_RETRACTED) {
+            for (ListenerRecord record : records) {
+                record.lastProgress = Float.NaN;
+                record.listener.onBeforeTrayOpen(this);
+            }
+        } else if (trayPosition == POSITION_OPEN) {
+            for (ListenerRecord record : records) {
+                record.lastProgress = Float.NaN;
+                record.listener.onTrayFullyOpen(this);
+            }
+        } else if (trayPosition == POSITION_RETRACTED) {
+            for (ListenerRecord record : records) {
+                record.lastProgress = Float.NaN;
+                record.listener.onTrayFullyRetracted(this);
+            }
+        } else if (trayPosition == POSITION_ABSOLUTE) {
+            float progress = getTrayOpenProgress();
+            for (ListenerRecord record : records) {
+                if (Math.abs(progress - record.lastProgress) < record.progressEpsilon)
+                    continue;
+                record.lastProgress = progress;
+                record.listener.onTrayPartiallyOpen(this, progress);
             }
         }
     }
 
+    /**
+     * In {@link PositioningMode#POSITIONING_TRANSLATION} the tray's layout slot is fixed at the
+     * open position and every position, terminal ones included, is applied as a translation, so
+     * moving the tray never offsets the view or invalidates its parent.
+     */
+    public void setPositioningMode(@PositioningMode int positioningMode) {
+        if (this.positioningMode == positioningMode)
+            return;
+        this.positioningMode = positioningMode;
+        if (view.getParent() instanceof PositionLayout) {
+            dragDirection.setTranslation(view, 0);
+            if (positioningMode == PositioningMode.POSITIONING_TRANSLATION)
+                dragDirection.placeChildInParent(view, (PositionLayout) view.getParent(), geometry.getOpenPosition());
+        }
+        applyPosition();
+    }
+
+    @PositioningMode
+    public int getPositioningMode() {
+        return positioningMode;
+    }
+
+    /**
+     * Enables hardware layers for tray motion: while the tray is dragged or animated its view is
+     * rendered into a hardware layer if the policy allows it, and returned to no layer once the
+     * motion settles. {@code null} disables promotion.
+     */
+    public void setMotionLayerPolicy(MotionLayerPolicy motionLayerPolicy) {
+        this.motionLayerPolicy = motionLayerPolicy;
+    }
+
+    public void beginMotion() {
+        if (inMotion)
+            return;
+        inMotion = true;
+        if (snapshotActive || motionLayerPolicy == null || view.getLayerType() != View.LAYER_TYPE_NONE || !motionLayerPolicy.shouldPromote(view))
+            return;
+        motionLayerPromoted = true;
+        view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        long layerBytes = (long) view.getWidth() * view.getHeight() * 4;
+        for (ListenerRecord record : listeners)
+            record.listener.onTrayLayerPromoted(this, layerBytes);
+    }
+
+    public void endMotion() {
+        if (!inMotion)
+            return;
+        inMotion = false;
+        releaseSnapshot();
+        if (!motionLayerPromoted)
+            return;
+        motionLayerPromoted = false;
+        view.setLayerType(View.LAYER_TYPE_NONE, null);
+        for (ListenerRecord record : listeners)
+            record.listener.onTrayLayerDemoted(this);
+    }
+
+    public boolean isInMotion() {
+        return inMotion;
+    }
+
+    public boolean isMotionLayerPromoted() {
+        return motionLayerPromoted;
+    }
+
+    /**
+     * While enabled, a drag records the tray's current rendering and the parent draws only that
+     * snapshot until the motion settles, invalidated on every position change. Content that
+     * cannot be recorded is drawn live. Content that changes mid-drag must call
+     * {@link #invalidateSnapshot()} to be recaptured.
+     */
+    public void setSnapshotDuringDrag(boolean snapshotDuringDrag) {
+        this.snapshotDuringDrag = snapshotDuringDrag;
+        if (!snapshotDuringDrag) {
+            releaseSnapshot();
+            if (traySnapshot != null) {
+                traySnapshot.release();
+                traySnapshot = null;
+            }
+        }
+    }
+
+    public boolean isSnapshotActive() {
+        return snapshotActive;
+    }
+
+    public void invalidateSnapshot() {
+        if (snapshotActive)
+            captureSnapshot();
+    }
+
+    private void captureSnapshot() {
+        if (!(view.getParent() instanceof PositionLayout) || view.isLayoutRequested())
+            return;
+        if (traySnapshot == null)
+            traySnapshot = new TraySnapshot();
+        Picture snapshot = traySnapshot.capture(view);
+        if (snapshot == null) {
+            releaseSnapshot();
+            return;
+        }
+        snapshotActive = true;
+        ((PositionLayout) view.getParent()).setChildSnapshot(view, snapshot);
+    }
+
+    private void releaseSnapshot() {
+        if (!snapshotActive)
+            return;
+        snapshotActive = false;
+        if (view.getParent() instanceof PositionLayout)
+            ((PositionLayout) view.getParent()).setChildSnapshot(view, null);
+    }
+
+    public void dispatchDragStart() {
+        for (ListenerRecord record : listeners)
+            record.listener.onTrayDragStart(this);
+        if (snapshotDuringDrag)
+            captureSnapshot();
+    }
+
     public void addTrayPositionListener(TrayPositionListener trayPositionListener) {
-        listeners.add(trayPositionListener);
+        addTrayPositionListener(trayPositionListener, 0f);
+    }
+
+    /**
+     * @param progressEpsilon smallest progress change reported through
+     *                        {@link TrayPositionListener#onTrayPartiallyOpen}; the first partial
+     *                        update after any other callback is always reported
+     */
+    public void addTrayPositionListener(TrayPositionListener trayPositionListener, float progressEpsilon) {
+        ListenerRecord[] records = Arrays.copyOf(listeners, listeners.length + 1);
+        records[listeners.length] = new ListenerRecord(trayPositionListener, progressEpsilon);
+        listeners = records;
+    }
+
+    public void removeTrayPositionListener(TrayPositionListener trayPositionListener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].listener == trayPositionListener) {
+                ListenerRecord[] records = new ListenerRecord[listeners.length - 1];
+                System.arraycopy(listeners, 0, records, 0, i);
+                System.arraycopy(listeners, i + 1, records, i, records.length - i);
+                listeners = records.length == 0 ? NO_LISTENERS : records;
+                return;
+            }
+        }
     }
 
     public float getLeadingEdge() {
-        return dragDirection.getLeadingEdge(view, getAbsolutePosition(trayPosition));
+        return geometry.getLeadingEdge(getAbsolutePosition(trayPosition));
     }
 
     public float getMinPosition() {
-        return dragDirection.getMinPosition(view);
+        return geometry.getMinPosition();
     }
 
     public float getMaxPosition() {
-        return dragDirection.getMaxPosition(view);
+        return geometry.getMaxPosition();
     }
 
     public float getTrayOpenProgress() {
-        return Math2.clamp(dragDirection.getDragProgress(view, getAbsolutePosition(trayPosition)), 0.0f, 1.0f);
+        return Math2.clamp(geometry.getDragProgress(getAbsolutePosition(trayPosition)), 0.0f, 1.0f);
     }
 
-    public int getTrayParentSizeAlongDragAxis() {
-        if (view.getParent() != null) {
-            return dragDirection.getSizeAlongDragAxis((View) view.getParent());
+    public float getProgressAt(float position) {
+        return geometry.getDragProgress(position);
+    }
+
+    public TrayGeometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Sets the open progress fractions the tray comes to rest at, in addition to the fully
+     * retracted (0) and fully open (1) positions. Detents within .001 of an
+     * endpoint or of a lower detent are dropped.
+     */
+    public void setDetents(float... detents) {
+        float[] sorted = new float[detents.length + 2];
+        for (int i = 0; i < detents.length; i++) {
+            if (!(detents[i] >= 0f && detents[i] <= 1f))
+                throw new RuntimeException("Illegal detent: " + detents[i]);
+            sorted[i + 1] = detents[i];
+        }
+        Arrays.sort(sorted, 1, detents.length + 1);
+        sorted[0] = 0f;
+        int count = 1;
+        for (int i = 1; i <= detents.length; i++) {
+            if (sorted[i] - sorted[count - 1] > DETENT_EPSILON && 1f - sorted[i] > DETENT_EPSILON)
+                sorted[count++] = sorted[i];
         }
-        return 0;
+        sorted[count++] = 1f;
+        this.detents = Arrays.copyOf(sorted, count);
+    }
+
+    public float[] getDetents() {
+        return detents.clone();
+    }
+
+    public int getDetentCount() {
+        return detents.length;
+    }
+
+    public float getDetentProgress(int index) {
+        return detents[index];
+    }
+
+    public float getDetentPosition(int index) {
+        return geometry.getPositionForProgress(detents[index]);
+    }
+
+    @TrayPosition
+    public int getDetentPositionMode(int index) {
+        if (index == 0)
+            return POSITION_RETRACTED;
+        if (index == detents.length - 1)
+            return POSITION_OPEN;
+        return POSITION_ABSOLUTE;
+    }
+
+    /**
+     * @return index of the detent the tray currently rests at, or -1 if it is between detents
+     */
+    public int getCurrentDetent() {
+        float progress = getTrayOpenProgress();
+        int index = findNearestDetent(progress);
+        return Math.abs(detents[index] - progress) <= DETENT_EPSILON ? index : -1;
+    }
+
+    public int findNearestDetent(float progress) {
+        int index = Arrays.binarySearch(detents, progress);
+        if (index >= 0)
+            return index;
+        int insertion = -index - 1;
+        if (insertion == 0)
+            return 0;
+        if (insertion == detents.length)
+            return detents.length - 1;
+        return progress - detents[insertion - 1] <= detents[insertion] - progress ? insertion - 1 : insertion;
+    }
+
+    /**
+     * @return index of the first detent past {@code progress} in the given direction, or the
+     * last detent in that direction if there is none
+     */
+    public int findNextDetent(float progress, boolean opening) {
+        int index = Arrays.binarySearch(detents, progress);
+        if (opening) {
+            int next = index >= 0 ? index + 1 : -index - 1;
+            while (next < detents.length && detents[next] <= progress + DETENT_EPSILON)
+                next++;
+            return Math.min(next, detents.length - 1);
+        }
+        int previous = index >= 0 ? index - 1 : -index - 2;
+        while (previous >= 0 && detents[previous] >= progress - DETENT_EPSILON)
+            previous--;
+        return Math.max(previous, 0);
+    }
+
+    public int getTrayParentSizeAlongDragAxis() {
+        return geometry.getParentSize();
     }
 
     @TrayPosition
@@ -90,11 +367,11 @@ public class TrayUi implements View.OnLayoutChangeListener {
     public float getAbsolutePosition(@TrayPosition int trayPosition) {
         switch (trayPosition){
             case POSITION_RETRACTED:
-                return dragDirection.getRetractedPosition(view);
+                return geometry.getRetractedPosition();
             case POSITION_ABSOLUTE:
                 return position;
             case POSITION_OPEN:
-               return dragDirection.getOpenPosition(view);
+               return geometry.getOpenPosition();
         }
         throw new RuntimeException("Illegal position: " + trayPosition);
     }
@@ -104,17 +381,38 @@ public class TrayUi implements View.OnLayoutChangeListener {
         if(!(viewGroup instanceof PositionLayout))
             return;
         PositionLayout positionLayout = (PositionLayout) viewGroup;
-        if (trayPosition == POSITION_ABSOLUTE) {
+        if (snapshotActive)
+            positionLayout.invalidate();
+        if (trayPosition != POSITION_RETRACTED)
+            positionLayout.unparkChild(view);
+        if (positioningMode == PositioningMode.POSITIONING_TRANSLATION) {
+            dragDirection.setTranslationAlongDragAxis(view, getPosition() - geometry.getOpenPosition());
+        } else if (trayPosition == POSITION_ABSOLUTE) {
             dragDirection.setAbsolutePosition(view, getPosition());
             return;
+        } else {
+            dragDirection.setTranslation(view, 0);
+            dragDirection.placeChildInParent(view, positionLayout, getPosition());
         }
-        dragDirection.setTranslation(view, 0);
-        dragDirection.placeChildInParent(view, positionLayout, getPosition());
+        if (trayPosition == POSITION_RETRACTED)
+            positionLayout.parkChild(view);
     }
 
     @Override
     public void onLayoutChange(View view, int i, int i2, int i3, int i4, int i5, int i6, int i7, int i8) {
-        applyPosition();
+        updateGeometry();
+        if (view == this.view)
+            applyPosition();
+    }
+
+    private void updateGeometry() {
+        int size = dragDirection.getSizeAlongDragAxis(view);
+        int parentSize = view.getParent() instanceof View ? dragDirection.getSizeAlongDragAxis((View) view.getParent()) : 0;
+        if (geometry != null && geometry.matches(size, parentSize))
+            return;
+        geometry = new TrayGeometry(dragDirection, size, parentSize);
+        for (ListenerRecord record : listeners)
+            record.listener.onTrayGeometryChanged(this);
     }
 
     public void incrementPosition(float position) {
@@ -122,6 +420,17 @@ public class TrayUi implements View.OnLayoutChangeListener {
     }
 
 
+    private static final class ListenerRecord {
+        final TrayPositionListener listener;
+        final float progressEpsilon;
+        float lastProgress = Float.NaN;
+
+        ListenerRecord(TrayPositionListener listener, float progressEpsilon) {
+            this.listener = listener;
+            this.progressEpsilon = progressEpsilon;
+        }
+    }
+
     public interface TrayPositionListener {
         default void onTrayFullyOpen(TrayUi trayUi) {
         }
@@ -135,6 +444,40 @@ public class TrayUi implements View.OnLayoutChangeListener {
         default void onBeforeTrayOpen(TrayUi trayUi) {
 
         }
+
+        default void onTrayDragStart(TrayUi trayUi) {
+        }
+
+        /**
+         * Called when the tray's or its parent's size along the drag axis changes, moving the
+         * tray's edges and positions.
+         */
+        default void onTrayGeometryChanged(TrayUi trayUi) {
+        }
+
+        /**
+         * @param layerBytes approximate size of the layer, one ARGB_8888 frame of the tray
+         */
+        default void onTrayLayerPromoted(TrayUi trayUi, long layerBytes) {
+        }
+
+        default void onTrayLayerDemoted(TrayUi trayUi) {
+        }
+    }
+
+    public interface MotionLayerPolicy {
+        boolean shouldPromote(@NonNull View view);
+
+        static MotionLayerPolicy maxPixels(long maxPixels) {
+            return view -> (long) view.getWidth() * view.getHeight() <= maxPixels;
+        }
+    }
+
+    @IntDef({PositioningMode.POSITIONING_LAYOUT, PositioningMode.POSITIONING_TRANSLATION})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface PositioningMode {
+        int POSITIONING_LAYOUT = 0;
+        int POSITIONING_TRANSLATION = 1;
     }
 
     @IntDef({TrayPosition.POSITION_ABSOLUTE, TrayPosition.POSITION_OPEN, TrayPosition.POSITION_OPEN})
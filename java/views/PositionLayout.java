@@ -2,6 +2,8 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.os.Build;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.MotionEvent;
@@ -17,6 +19,11 @@ import android.view.ViewGroup;
 public class PositionLayout extends ViewGroup {
     private OnDrawListener onDrawListener;
     private OnInterceptTouchListener onInterceptTouchListener;
+    private int lastWidthMeasureSpec;
+    private int lastHeightMeasureSpec;
+    private boolean measured;
+    private int measureCacheHitCount;
+    private int measureCacheMissCount;
 
 
     public PositionLayout(Context context) {
@@ -44,6 +51,58 @@ public class PositionLayout extends ViewGroup {
         throw new RuntimeException(view.getClass().getSimpleName() + " is not a child of " + getClass().getSimpleName());
     }
 
+    /**
+     * Hides a child and keeps it out of measure and layout passes until {@link #unparkChild}.
+     * A parked child is still measured when the parent's measure specs change, so its size stays
+     * valid while it is away.
+     */
+    public void parkChild(View view) {
+        LayoutParams layoutParams = getChildLayoutParams(view);
+        if (layoutParams.parked)
+            return;
+        layoutParams.parked = true;
+        layoutParams.visibilityBeforeParking = view.getVisibility();
+        if (layoutParams.visibilityBeforeParking == VISIBLE)
+            view.setVisibility(INVISIBLE);
+    }
+
+    public void unparkChild(View view) {
+        LayoutParams layoutParams = getChildLayoutParams(view);
+        if (!layoutParams.parked)
+            return;
+        layoutParams.parked = false;
+        if (layoutParams.visibilityBeforeParking == VISIBLE && view.getVisibility() == INVISIBLE)
+            view.setVisibility(VISIBLE);
+        if (view.isLayoutRequested() && measured && view.getVisibility() != GONE) {
+            measureChild(view, lastWidthMeasureSpec, lastHeightMeasureSpec);
+            layoutChild(view, layoutParams);
+        }
+    }
+
+    /**
+     * Draws {@code snapshot} in place of the child until it is cleared with {@code null}. The child's
+     * own drawing is skipped meanwhile. The snapshot is drawn from this layout's display list, so
+     * whoever moves the child by its position or translation must also {@link #invalidate()} it.
+     * Setting the same picture again after re-recording it redraws it.
+     */
+    public void setChildSnapshot(View view, Picture snapshot) {
+        LayoutParams layoutParams = getChildLayoutParams(view);
+        if (layoutParams.snapshot == null && snapshot == null)
+            return;
+        layoutParams.snapshot = snapshot;
+        invalidate();
+    }
+
+    public boolean isChildParked(View view) {
+        return getChildLayoutParams(view).parked;
+    }
+
+    private LayoutParams getChildLayoutParams(View view) {
+        if (view.getParent() != this)
+            throw new RuntimeException(view.getClass().getSimpleName() + " is not a child of " + getClass().getSimpleName());
+        return (LayoutParams) view.getLayoutParams();
+    }
+
     public void setOnInterceptTouchListener(OnInterceptTouchListener onInterceptTouchListener) {
         this.onInterceptTouchListener = onInterceptTouchListener;
     }
@@ -68,19 +127,68 @@ public class PositionLayout extends ViewGroup {
         }
     }
 
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        Picture snapshot = ((LayoutParams) child.getLayoutParams()).snapshot;
+        if (snapshot == null)
+            return super.drawChild(canvas, child, drawingTime);
+        if (!canvas.isHardwareAccelerated() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.P && snapshot.requiresHardwareAcceleration())
+            return super.drawChild(canvas, child, drawingTime);
+        int saveCount = canvas.save();
+        canvas.translate(child.getLeft() + child.getTranslationX(), child.getTop() + child.getTranslationY());
+        canvas.drawPicture(snapshot);
+        canvas.restoreToCount(saveCount);
+        return false;
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        measureChildren(widthMeasureSpec, heightMeasureSpec);
+        boolean specsChanged = !measured || widthMeasureSpec != lastWidthMeasureSpec || heightMeasureSpec != lastHeightMeasureSpec;
+        lastWidthMeasureSpec = widthMeasureSpec;
+        lastHeightMeasureSpec = heightMeasureSpec;
+        measured = true;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE)
+                continue;
+            if (((LayoutParams) child.getLayoutParams()).parked && !specsChanged)
+                continue;
+            measureChild(child, widthMeasureSpec, heightMeasureSpec);
+        }
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
     }
 
     @Override
     protected void measureChild(View child, int parentWidthMeasureSpec, int parentHeightMeasureSpec) {
         LayoutParams layoutParams = (LayoutParams) child.getLayoutParams();
-        child.measure(
-                getChildMeasureSpec(parentWidthMeasureSpec, layoutParams.leftMargin + layoutParams.rightMargin, layoutParams.width),
-                getChildMeasureSpec(parentHeightMeasureSpec, layoutParams.topMargin + layoutParams.bottomMargin, layoutParams.height)
-        );
+        int childWidthMeasureSpec = getChildMeasureSpec(parentWidthMeasureSpec, layoutParams.leftMargin + layoutParams.rightMargin, layoutParams.width);
+        int childHeightMeasureSpec = getChildMeasureSpec(parentHeightMeasureSpec, layoutParams.topMargin + layoutParams.bottomMargin, layoutParams.height);
+        if (layoutParams.measured
+                && layoutParams.widthMeasureSpec == childWidthMeasureSpec
+                && layoutParams.heightMeasureSpec == childHeightMeasureSpec
+                && !child.isLayoutRequested()) {
+            measureCacheHitCount++;
+            return;
+        }
+        measureCacheMissCount++;
+        child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+        layoutParams.measured = true;
+        layoutParams.widthMeasureSpec = childWidthMeasureSpec;
+        layoutParams.heightMeasureSpec = childHeightMeasureSpec;
+    }
+
+    public int getMeasureCacheHitCount() {
+        return measureCacheHitCount;
+    }
+
+    public int getMeasureCacheMissCount() {
+        return measureCacheMissCount;
+    }
+
+    public void resetMeasureCacheCounts() {
+        measureCacheHitCount = 0;
+        measureCacheMissCount = 0;
     }
 
     @Override
@@ -90,18 +198,24 @@ public class PositionLayout extends ViewGroup {
             View child = getChildAt(i);
             LayoutParams layoutParams = (LayoutParams) child.getLayoutParams();
             if (child.getVisibility() != GONE) {
-                int x = Math.round(layoutParams.x);
-                int y = Math.round(layoutParams.y);
-                child.layout(
-                        x,
-                        y,
-                        x+ child.getMeasuredWidth(),
-                        y+ child.getMeasuredHeight()
-                );
+                if (layoutParams.parked && child.getWidth() == child.getMeasuredWidth() && child.getHeight() == child.getMeasuredHeight())
+                    continue;
+                layoutChild(child, layoutParams);
             }
         }
     }
 
+    private void layoutChild(View child, LayoutParams layoutParams) {
+        int x = Math.round(layoutParams.x);
+        int y = Math.round(layoutParams.y);
+        child.layout(
+                x,
+                y,
+                x+ child.getMeasuredWidth(),
+                y+ child.getMeasuredHeight()
+        );
+    }
+
     @Override
     protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
         return p instanceof LayoutParams;
@@ -114,7 +228,9 @@ public class PositionLayout extends ViewGroup {
 
     @Override
     protected ViewGroup.LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
-        return new LayoutParams((MarginLayoutParams) p);
+        if (p instanceof MarginLayoutParams)
+            return new LayoutParams((MarginLayoutParams) p);
+        return new LayoutParams(p.width, p.height);
     }
 
     @Override
@@ -126,6 +242,12 @@ public class PositionLayout extends ViewGroup {
     public static class LayoutParams extends ViewGroup.MarginLayoutParams {
         public float x;
         public float y;
+        boolean parked;
+        int visibilityBeforeParking;
+        boolean measured;
+        int widthMeasureSpec;
+        int heightMeasureSpec;
+        Picture snapshot;
 
         public LayoutParams(Context c, AttributeSet attrs) {
             super(c, attrs);
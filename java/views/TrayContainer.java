@@ -32,4 +32,8 @@ public class TrayContainer extends PositionLayout {
             view.setLayoutParams(new PositionLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
         addView(view);
     }
+
+    public void removeTray(View view){
+        removeView(view);
+    }
 }
@@ -0,0 +1,54 @@
+import android.content.Context;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Cheap stand-in placed in the {@link TrayContainer} for a tray whose content is created on
+ * demand. It is laid out with the layout params the tray was attached with, so the tray's size
+ * is known before its content exists, and it only inflates the real content through its
+ * {@link TrayContentFactory} on {@link #ensureContent()}.
+ *
+ * @author : "Line'R"
+ * @mailto : serinity320@mail.com
+ * @created : 17.10.2026, суббота
+ **/
+public class TrayContentHolder extends FrameLayout {
+    private final TrayContentFactory trayContentFactory;
+    private View content;
+
+    public TrayContentHolder(Context context, @NonNull TrayContentFactory trayContentFactory) {
+        super(context);
+        this.trayContentFactory = trayContentFactory;
+    }
+
+    public boolean hasContent() {
+        return content != null;
+    }
+
+    public View getContent() {
+        return content;
+    }
+
+    public View ensureContent() {
+        if (content == null) {
+            content = trayContentFactory.createTrayContent(this);
+            if (content.getLayoutParams() == null)
+                content.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+            addView(content);
+        }
+        return content;
+    }
+
+    public void releaseContent() {
+        if (content != null) {
+            removeView(content);
+            content = null;
+        }
+    }
+
+    public long estimateContentBytes() {
+        return content != null ? trayContentFactory.estimateContentBytes(content) : 0;
+    }
+}